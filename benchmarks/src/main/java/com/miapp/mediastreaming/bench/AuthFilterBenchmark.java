@@ -0,0 +1,102 @@
+package com.miapp.mediastreaming.bench;
+
+import com.miapp.mediastreaming.config.TokenAuthenticationFilter;
+import com.miapp.mediastreaming.config.TokenCache;
+import com.miapp.mediastreaming.model.User;
+import com.miapp.mediastreaming.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Coste de TokenAuthenticationFilter por petición: con la caché de tokens acertando y fallando siempre (ttl 0),
+// contra un repositorio de Mockito y contra uno en memoria, para separar el coste del filtro del de la simulación
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthFilterBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"mock", "in-memory"})
+    public String repository;
+
+    @Param({"hit", "miss"})
+    public String cache;
+
+    private TokenAuthenticationFilter filter;
+    private String[] tokens;
+    private FilterChain chain;
+
+    @State(Scope.Thread)
+    public static class Requests {
+        int next;
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/servers");
+        final MockHttpServletRequest anonymous = new MockHttpServletRequest("GET", "/api/auth/servers");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+    }
+
+    @Setup
+    public void setup() {
+        Map<String, User> byToken = new HashMap<>();
+        tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("user" + i, "user" + i + "@bench.com", "x");
+            user.setId((long) i + 1);
+            user.setToken(UUID.randomUUID().toString());
+            byToken.put(user.getToken(), user);
+            tokens[i] = user.getToken();
+        }
+        UserRepository userRepository = "mock".equals(repository) ? mockRepository(byToken) : inMemoryRepository(byToken);
+        TokenCache tokenCache = new TokenCache(100_000, "hit".equals(cache) ? Duration.ofHours(1) : Duration.ZERO,
+                new SimpleMeterRegistry());
+        filter = new TokenAuthenticationFilter(userRepository, tokenCache, new SimpleMeterRegistry());
+        chain = (request, response) -> SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object authenticated(Requests state) throws Exception {
+        state.request.removeHeader("Authorization");
+        state.request.addHeader("Authorization", "Bearer " + tokens[state.next++ % USERS]);
+        filter.doFilter(state.request, state.response, chain);
+        return state.request;
+    }
+
+    @Benchmark
+    public void anonymous(Requests state, Blackhole blackhole) throws Exception {
+        filter.doFilter(state.anonymous, state.response, chain);
+        blackhole.consume(state.anonymous);
+    }
+
+    // stubOnly: sin registro de invocaciones, que crecería sin límite durante la medición
+    private static UserRepository mockRepository(Map<String, User> byToken) {
+        UserRepository userRepository = Mockito.mock(UserRepository.class, Mockito.withSettings().stubOnly());
+        Mockito.when(userRepository.findByToken(Mockito.anyString()))
+                .thenAnswer(invocation -> byToken.get(invocation.<String>getArgument(0)));
+        return userRepository;
+    }
+
+    private static UserRepository inMemoryRepository(Map<String, User> byToken) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findByToken")) {
+                        return byToken.get((String) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
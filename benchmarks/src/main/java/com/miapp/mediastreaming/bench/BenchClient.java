@@ -0,0 +1,101 @@
+package com.miapp.mediastreaming.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+// Cliente HTTP mínimo de la API para preparar datos y lanzar peticiones desde los benchmarks
+public class BenchClient {
+    public static final String PASSWORD = "Bench123!";
+
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+
+    public BenchClient(int port) {
+        this.baseUrl = "http://localhost:" + port;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public void register(String username, String email) throws IOException, InterruptedException {
+        Map<String, Object> body = Map.of(
+                "user", Map.of("username", username, "email", email, "password", PASSWORD),
+                "confirmPassword", PASSWORD);
+        expectOk(send(post("/api/auth/register", null, body)));
+    }
+
+    public String login(String email) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(post("/api/auth/login", null, Map.of("email", email, "password", PASSWORD)));
+        expectOk(response);
+        return mapper.readTree(response.body()).get("token").asText();
+    }
+
+    public long registerServer(String token, String name) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(post("/api/auth/register-server", token,
+                Map.of("serverName", name, "ipAddress", "127.0.0.1", "port", 1935)));
+        expectOk(response);
+        return mapper.readTree(response.body()).get("id").asLong();
+    }
+
+    public String createUserWithServers(String prefix, int servers) throws IOException, InterruptedException {
+        String username = prefix + "_" + System.nanoTime();
+        String email = username + "@bench.example.com";
+        register(username, email);
+        String token = login(email);
+        for (int i = 0; i < servers; i++) {
+            registerServer(token, username + "-srv-" + i);
+        }
+        return token;
+    }
+
+    public HttpRequest get(String path, String token) {
+        return authorize(HttpRequest.newBuilder(URI.create(baseUrl + path)), token).GET().build();
+    }
+
+    public HttpRequest post(String path, String token, Object body) throws IOException {
+        return authorize(HttpRequest.newBuilder(URI.create(baseUrl + path)), token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build();
+    }
+
+    public HttpRequest put(String path, String token, Object body) throws IOException {
+        return authorize(HttpRequest.newBuilder(URI.create(baseUrl + path)), token)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build();
+    }
+
+    public HttpRequest delete(String path, String token) {
+        return authorize(HttpRequest.newBuilder(URI.create(baseUrl + path)), token).DELETE().build();
+    }
+
+    public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public JsonNode json(HttpResponse<String> response) throws IOException {
+        return mapper.readTree(response.body());
+    }
+
+    private static HttpRequest.Builder authorize(HttpRequest.Builder builder, String token) {
+        builder.timeout(Duration.ofSeconds(30));
+        return token != null ? builder.header("Authorization", "Bearer " + token) : builder;
+    }
+
+    private static void expectOk(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Respuesta inesperada " + response.statusCode() + " de " + response.uri());
+        }
+    }
+}
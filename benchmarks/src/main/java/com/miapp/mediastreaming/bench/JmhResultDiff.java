@@ -0,0 +1,80 @@
+package com.miapp.mediastreaming.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compara dos ficheros de resultados JMH (-rf json) y marca como regresión cada benchmark que empeora más que
+// el umbral (bench.threshold, 5% por defecto) y más que la suma de los márgenes de error de ambas ejecuciones.
+// Sale con código 1 si hay alguna regresión, para poder usarlo en CI.
+public final class JmhResultDiff {
+
+    private record Score(String mode, double score, double error, String unit) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: JmhResultDiff <base.json> <nuevo.json>");
+            System.exit(2);
+        }
+        double threshold = Double.parseDouble(System.getProperty("bench.threshold", "0.05"));
+        Map<String, Score> base = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %9s%n", "benchmark", "base", "nuevo", "cambio");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = base.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s%n", entry.getKey(), "-", now.score(), "nuevo");
+                continue;
+            }
+            double change = (now.score() - before.score()) / before.score();
+            // En modo throughput más es mejor; en el resto (avgt, sample, ss) menos es mejor
+            double worse = "thrpt".equals(now.mode()) ? -change : change;
+            boolean significant = Math.abs(now.score() - before.score()) > before.error() + now.error();
+            boolean regression = worse > threshold && significant;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.score(), now.score(),
+                    change * 100, now.unit(), regression ? "  REGRESION" : "");
+        }
+        for (String key : base.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-80s %14.3f %14s %9s%n", key, base.get(key).score(), "-", "eliminado");
+            }
+        }
+        System.out.printf("%n%d regresiones (umbral %.0f%%)%n", regressions, threshold * 100);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    // Clave: nombre del benchmark y sus @Param, que identifican la misma medición entre versiones
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replace("com.miapp.mediastreaming.bench.", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                Map<String, String> sorted = new TreeMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    sorted.put(param.getKey(), param.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            JsonNode metric = result.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            scores.put(key.toString(), new Score(result.get("mode").asText(), metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
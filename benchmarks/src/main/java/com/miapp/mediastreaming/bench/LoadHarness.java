@@ -0,0 +1,396 @@
+package com.miapp.mediastreaming.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miapp.mediastreaming.MediaStreamingApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Prueba de carga extremo a extremo: arranca la aplicación en este proceso contra un PostgreSQL embebido
+// (o el de bench.jdbc-url) y lanza una mezcla de operaciones de la API en modelo abierto: las peticiones salen
+// a ritmo fijo (bench.rate) sin esperar a las anteriores, como llegan los usuarios reales.
+//
+// La latencia se mide desde el instante en que la petición debía salir, no desde que salió: si el servidor
+// (o el límite bench.clients) retrasa el envío, esa espera cuenta. Así se evita la omisión coordinada que
+// tienen los bucles cerrados, que dejan de enviar justo cuando el servidor va lento. También se informa del
+// tiempo de servicio (desde el envío real) para ver cuánto es cola y cuánto servidor.
+//
+//   mvn -f benchmarks/pom.xml compile exec:java -Dexec.mainClass=com.miapp.mediastreaming.bench.LoadHarness
+//
+// Parámetros (-D): bench.rate (300 pet/s), bench.clients (256 en vuelo como máximo), bench.users (200),
+//                  bench.servers (10 por usuario al inicio), bench.warmup (15 s), bench.duration (60 s),
+//                  bench.mix (register=2,login=5,register-server=10,servers=55,update=15,delete=8,logout=5),
+//                  bench.virtual-threads (false), bench.jdbc-url/bench.jdbc-user/bench.jdbc-password (BD externa),
+//                  bench.output (fichero JSON con los resultados)
+public final class LoadHarness {
+
+    private static final String DEFAULT_MIX = "register=2,login=5,register-server=10,servers=55,update=15,delete=8,logout=5";
+    private static final int PAGE_SIZE = 100;
+
+    // Sesión de un usuario simulado; solo la usa una operación a la vez
+    private static final class Session {
+        final String email;
+        String token;
+        final List<Long> servers = new ArrayList<>();
+
+        Session(String email, String token) {
+            this.email = email;
+            this.token = token;
+        }
+    }
+
+    private static final class Stats {
+        final Histogram latency = new ConcurrentHistogram(3);
+        final Histogram service = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void reset() {
+            latency.reset();
+            service.reset();
+            errors.reset();
+            statuses.clear();
+        }
+    }
+
+    private final BenchClient client;
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final LinkedBlockingQueue<Session> idle = new LinkedBlockingQueue<>();
+    private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    private final AtomicLong registered = new AtomicLong();
+    private final LongAdder sessionWaits = new LongAdder();
+    private final LongAdder scheduled = new LongAdder();
+
+    private LoadHarness(BenchClient client, String mix) {
+        this.client = client;
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            weights.put(kv[0], Integer.parseInt(kv[1]));
+        }
+        operations = weights.keySet().toArray(String[]::new);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (String operation : List.of("register", "login", "register-server", "servers", "update", "delete", "logout")) {
+            stats.put(operation, new Stats());
+        }
+        for (String operation : operations) {
+            if (!stats.containsKey(operation)) {
+                throw new IllegalArgumentException("Operación desconocida en bench.mix: " + operation);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        double rate = Double.parseDouble(System.getProperty("bench.rate", "300"));
+        int clients = Integer.getInteger("bench.clients", 256);
+        int users = Integer.getInteger("bench.users", 200);
+        int servers = Integer.getInteger("bench.servers", 10);
+        Duration warmup = Duration.ofSeconds(Long.getLong("bench.warmup", 15));
+        Duration duration = Duration.ofSeconds(Long.getLong("bench.duration", 60));
+        String mix = System.getProperty("bench.mix", DEFAULT_MIX);
+        boolean virtual = Boolean.getBoolean("bench.virtual-threads");
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+
+        EmbeddedPostgres postgres = null;
+        String user = System.getProperty("bench.jdbc-user", "postgres");
+        String password = System.getProperty("bench.jdbc-password", "postgres");
+        if (jdbcUrl == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true";
+            user = "postgres";
+            password = "postgres";
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MediaStreamingApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + user,
+                        "--spring.datasource.password=" + password,
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        // Todos los clientes salen de 127.0.0.1: con los límites por IP la preparación no pasaría del registro 10
+                        "--app.rate-limit.enabled=false",
+                        // Los servidores de prueba se registran en 127.0.0.1
+                        "--app.servers.address-policy.enabled=false",
+                        "--logging.level.com.miapp.mediastreaming=WARN");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadHarness harness = new LoadHarness(new BenchClient(port), mix);
+            harness.prepare(users, servers);
+            harness.run(rate, clients, warmup);
+            harness.stats.values().forEach(Stats::reset);
+            harness.sessionWaits.reset();
+            harness.scheduled.reset();
+            double seconds = harness.run(rate, clients, duration);
+            harness.report(rate, clients, users, seconds, virtual, mix);
+        } finally {
+            context.close();
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private void prepare(int users, int servers) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()))) {
+            for (int i = 0; i < users; i++) {
+                executor.submit(() -> {
+                    String email = nextEmail();
+                    client.register(email.substring(0, email.indexOf('@')), email);
+                    Session session = new Session(email, client.login(email));
+                    for (int s = 0; s < servers; s++) {
+                        session.servers.add(client.registerServer(session.token, "srv-" + s));
+                    }
+                    idle.add(session);
+                    return null;
+                });
+            }
+        }
+        if (idle.size() != users) {
+            throw new IllegalStateException("Solo se pudieron preparar " + idle.size() + " de " + users + " usuarios");
+        }
+    }
+
+    // Modelo abierto: la petición i debe salir en start + i / rate, pase lo que pase con las anteriores
+    private double run(double rate, int clients, Duration duration) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        Semaphore inFlight = new Semaphore(clients);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                // Si se alcanza el límite, la espera queda dentro de la latencia porque se mide desde intended
+                inFlight.acquire();
+                scheduled.increment();
+                executor.execute(() -> {
+                    try {
+                        execute(pickOperation(), intended);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        // Incluye lo que tardan en terminar las peticiones en vuelo al cerrar la ventana
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private String pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void execute(String operation, long intended) {
+        if ("register".equals(operation)) {
+            String email = nextEmail();
+            call(operation, intended, () -> client.post("/api/auth/register", null, Map.of(
+                    "user", Map.of("username", email.substring(0, email.indexOf('@')), "email", email,
+                            "password", BenchClient.PASSWORD),
+                    "confirmPassword", BenchClient.PASSWORD)));
+            return;
+        }
+        Session session;
+        try {
+            session = takeSession();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            if (session.token == null) {
+                // Tras un logout, la siguiente operación de la sesión es volver a entrar
+                operation = "login";
+            } else if (session.servers.isEmpty() && ("update".equals(operation) || "delete".equals(operation))) {
+                operation = "register-server";
+            }
+            switch (operation) {
+                case "login" -> {
+                    HttpResponse<String> response = call(operation, intended, () -> client.post("/api/auth/login", null,
+                            Map.of("email", session.email, "password", BenchClient.PASSWORD)));
+                    if (response != null) {
+                        session.token = client.json(response).get("token").asText();
+                    }
+                }
+                case "register-server" -> {
+                    HttpResponse<String> response = call(operation, intended, () -> client.post("/api/auth/register-server",
+                            session.token, Map.of("serverName", "srv-load", "ipAddress", "127.0.0.1", "port", 1935)));
+                    if (response != null) {
+                        session.servers.add(client.json(response).get("id").asLong());
+                    }
+                }
+                case "servers" -> call(operation, intended, () -> client.get("/api/auth/servers?size=" + PAGE_SIZE, session.token));
+                case "update" -> {
+                    long id = session.servers.get(ThreadLocalRandom.current().nextInt(session.servers.size()));
+                    call(operation, intended, () -> client.put("/api/auth/servers/" + id, session.token,
+                            Map.of("serverName", "srv-upd", "ipAddress", "127.0.0.2", "port", 1936)));
+                }
+                case "delete" -> {
+                    int index = ThreadLocalRandom.current().nextInt(session.servers.size());
+                    long id = session.servers.get(index);
+                    if (call(operation, intended, () -> client.delete("/api/auth/servers/" + id, session.token)) != null) {
+                        session.servers.remove(index);
+                    }
+                }
+                case "logout" -> {
+                    if (call(operation, intended, () -> client.post("/api/auth/logout", session.token, Map.of())) != null) {
+                        session.token = null;
+                    }
+                }
+                default -> throw new IllegalStateException(operation);
+            }
+        } catch (Exception e) {
+            failures.add(e);
+        } finally {
+            idle.add(session);
+        }
+    }
+
+    private interface RequestFactory {
+        HttpRequest create() throws Exception;
+    }
+
+    // Devuelve la respuesta si fue 2xx; en otro caso la cuenta como error y devuelve null
+    private HttpResponse<String> call(String operation, long intended, RequestFactory factory) {
+        Stats s = stats.get(operation);
+        long sent = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = client.send(factory.create());
+        } catch (Exception e) {
+            s.errors.increment();
+            failures.add(e);
+            return null;
+        }
+        long done = System.nanoTime();
+        int status = response.statusCode();
+        s.statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+        if (status / 100 != 2) {
+            s.errors.increment();
+            return null;
+        }
+        s.latency.recordValue(done - intended);
+        s.service.recordValue(done - sent);
+        return response;
+    }
+
+    private Session takeSession() throws InterruptedException {
+        Session session = idle.poll();
+        if (session == null) {
+            sessionWaits.increment();
+            session = idle.take();
+        }
+        return session;
+    }
+
+    private String nextEmail() {
+        return "load" + registered.incrementAndGet() + "_" + System.nanoTime() + "@bench.example.com";
+    }
+
+    private void report(double rate, int clients, int users, double seconds, boolean virtual, String mix) throws Exception {
+        System.out.printf("%nrate=%.0f/s clients=%d users=%d duration=%.0fs virtual-threads=%b scheduled=%d%nmix=%s%n",
+                rate, clients, users, seconds, virtual, scheduled.sum(), mix);
+        System.out.printf("%-16s %9s %9s %7s %10s %10s %10s %10s %12s%n", "endpoint", "count", "req/s", "errors",
+                "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "svc p99(ms)");
+        Map<String, Object> results = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long errors = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            Histogram h = s.latency;
+            if (h.getTotalCount() == 0 && s.errors.sum() == 0) {
+                continue;
+            }
+            total.add(h);
+            errors += s.errors.sum();
+            print(entry.getKey(), h, s.service, s.errors.sum(), seconds);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("count", h.getTotalCount());
+            row.put("throughput", h.getTotalCount() / seconds);
+            row.put("errors", s.errors.sum());
+            Map<String, Long> statuses = new LinkedHashMap<>();
+            s.statuses.forEach((status, count) -> statuses.put(Integer.toString(status), count.sum()));
+            row.put("statuses", statuses);
+            row.put("p50Ms", millis(h.getValueAtPercentile(50)));
+            row.put("p99Ms", millis(h.getValueAtPercentile(99)));
+            row.put("p999Ms", millis(h.getValueAtPercentile(99.9)));
+            row.put("maxMs", millis(h.getMaxValue()));
+            row.put("serviceP99Ms", millis(s.service.getValueAtPercentile(99)));
+            results.put(entry.getKey(), row);
+        }
+        print("TOTAL", total, null, errors, seconds);
+        if (sessionWaits.sum() > 0) {
+            System.out.printf("%nAviso: %d operaciones esperaron una sesión libre; sube bench.users para que no limite la carga%n",
+                    sessionWaits.sum());
+        }
+        if (!failures.isEmpty()) {
+            System.out.printf("%n%d fallos del cliente, el primero: %s%n", failures.size(), failures.get(0));
+        }
+        String output = System.getProperty("bench.output");
+        if (output != null) {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("rate", rate);
+            document.put("clients", clients);
+            document.put("users", users);
+            document.put("seconds", seconds);
+            document.put("scheduled", scheduled.sum());
+            document.put("virtualThreads", virtual);
+            document.put("mix", mix);
+            document.put("endpoints", results);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(output), document);
+            System.out.println("Resultados guardados en " + output);
+        }
+    }
+
+    private static void print(String name, Histogram h, Histogram service, long errors, double seconds) {
+        System.out.printf("%-16s %9d %9.1f %7d %10.2f %10.2f %10.2f %10.2f %12s%n", name, h.getTotalCount(),
+                h.getTotalCount() / seconds, errors, millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()),
+                service != null ? String.format("%.2f", millis(service.getValueAtPercentile(99))) : "");
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
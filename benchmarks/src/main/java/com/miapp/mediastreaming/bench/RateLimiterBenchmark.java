@@ -0,0 +1,107 @@
+package com.miapp.mediastreaming.bench;
+
+import com.miapp.mediastreaming.config.AuthenticatedUser;
+import com.miapp.mediastreaming.config.PrincipalRateLimitFilter;
+import com.miapp.mediastreaming.config.RateLimitFilter;
+import com.miapp.mediastreaming.config.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Coste del limitador por petición: tryAcquire sobre una regla y los dos filtros (RateLimitFilter por IP y
+// PrincipalRateLimitFilter por usuario) frente a "baseline", que prepara la misma petición simulada sin pasar por ellos. Con "allow" nunca se rechaza y con "reject"
+// (1 por minuto) todo salvo la primera petición de cada cliente va por la rama del 429.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "100000"})
+    public int clients;
+
+    @Param({"allow", "reject"})
+    public String limit;
+
+    private RateLimiter.Rule rule;
+    private RateLimitFilter filter;
+    private String[] ips;
+    private String[] userKeys;
+    private Authentication[] authentications;
+    private FilterChain chain;
+    private FilterChain principalChain;
+
+    @State(Scope.Thread)
+    public static class Requests {
+        int next;
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/servers");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+    }
+
+    @Setup
+    public void setup() {
+        int perMinute = "allow".equals(limit) ? Integer.MAX_VALUE : 1;
+        RateLimiter rateLimiter = new RateLimiter(true, 1_000_000, perMinute, perMinute, perMinute, perMinute,
+                perMinute, perMinute, perMinute, new SimpleMeterRegistry());
+        rule = rateLimiter.rule(RateLimiter.SERVER_READS);
+        filter = new RateLimitFilter(rateLimiter);
+        PrincipalRateLimitFilter principalFilter = new PrincipalRateLimitFilter(rateLimiter);
+        ips = new String[clients];
+        userKeys = new String[clients];
+        authentications = new Authentication[clients];
+        for (int i = 0; i < clients; i++) {
+            ips[i] = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+            userKeys[i] = Long.toString(i + 1);
+            AuthenticatedUser user = new AuthenticatedUser(i + 1L, "bench" + i + "@example.com", List.of());
+            authentications[i] = new UsernamePasswordAuthenticationToken(user, null, user.authorities());
+        }
+        chain = (request, response) -> { };
+        // Entre los dos iría el filtro de token, que aquí se sustituye por fijar la autenticación en prepare()
+        principalChain = (request, response) -> principalFilter.doFilter(request, response, chain);
+    }
+
+    @Benchmark
+    public long tryAcquire(Requests state) {
+        return rule.tryAcquire(userKeys[state.next++ % clients]);
+    }
+
+    // Varios hilos sobre las mismas claves: mide los reintentos del CAS cuando hay contención
+    @Benchmark
+    @Threads(4)
+    public long tryAcquireContended(Requests state) {
+        return rule.tryAcquire(userKeys[state.next++ % clients]);
+    }
+
+    @Benchmark
+    public Object filter(Requests state) throws Exception {
+        prepare(state);
+        filter.doFilter(state.request, state.response, principalChain);
+        return state.response;
+    }
+
+    @Benchmark
+    public Object baseline(Requests state) throws Exception {
+        prepare(state);
+        chain.doFilter(state.request, state.response);
+        return state.response;
+    }
+
+    private void prepare(Requests state) {
+        int i = state.next++ % clients;
+        state.request.setRemoteAddr(ips[i]);
+        SecurityContextHolder.getContext().setAuthentication(authentications[i]);
+        // OncePerRequestFilter marca la petición; sin esto la segunda vuelta se saltaría el filtro
+        state.request.clearAttributes();
+        state.response.reset();
+    }
+}
@@ -0,0 +1,194 @@
+package com.miapp.mediastreaming.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Tiempo hasta la primera petición servida: arranca el jar del perfil fast-startup en un proceso nuevo y mide
+// desde que se lanza hasta el primer 200 de /actuator/health en el puerto de gestión (que ya pasa por la BD). Compara el jar tal cual
+// con AOT (-Dspring.aot.enabled=true), con el archivo CDS (app.jsa) y con ambos.
+//
+//   mvn -Pfast-startup package
+//   mvn -f benchmarks/pom.xml compile exec:java -Dexec.mainClass=com.miapp.mediastreaming.bench.StartupBenchmark
+//
+// Parámetros (-D): bench.jar (target/media-streaming-backend-1.0-SNAPSHOT.jar), bench.runs (5 por modo),
+//                  bench.modes (plain,cds,aot,aot-cds), bench.timeout (120 s por arranque),
+//                  bench.jdbc-url/bench.jdbc-user/bench.jdbc-password (BD externa), bench.output (fichero JSON)
+//
+// Los procesos usan la JVM que ejecuta el benchmark: tiene que ser la misma que generó app.jsa, y se lanzan desde
+// el directorio del jar como en el entrenamiento. -Xshare:on hace que un archivo que no encaja falle en vez de
+// ignorarse en silencio y medir otra cosa.
+public final class StartupBenchmark {
+
+    private static final Map<String, List<String>> MODES = new LinkedHashMap<>();
+
+    static {
+        MODES.put("plain", List.of());
+        MODES.put("cds", List.of("-XX:SharedArchiveFile=app.jsa", "-Xshare:on"));
+        MODES.put("aot", List.of("-Dspring.aot.enabled=true"));
+        MODES.put("aot-cds", List.of("-XX:SharedArchiveFile=app.jsa", "-Xshare:on", "-Dspring.aot.enabled=true"));
+    }
+
+    private final File jar;
+    private final List<String> datasource;
+    private final Duration timeout;
+    private final File log;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+
+    private StartupBenchmark(File jar, List<String> datasource, Duration timeout) {
+        this.jar = jar;
+        this.datasource = datasource;
+        this.timeout = timeout;
+        this.log = new File(jar.getParentFile(), "startup-benchmark.log");
+    }
+
+    public static void main(String[] args) throws Exception {
+        File jar = new File(System.getProperty("bench.jar", "target/media-streaming-backend-1.0-SNAPSHOT.jar")).getAbsoluteFile();
+        int runs = Integer.getInteger("bench.runs", 5);
+        List<String> modes = List.of(System.getProperty("bench.modes", String.join(",", MODES.keySet())).split(","));
+        Duration timeout = Duration.ofSeconds(Long.getLong("bench.timeout", 120));
+        if (!jar.isFile() || !new File(jar.getParentFile(), "lib").isDirectory()) {
+            throw new IllegalStateException("No existe " + jar + " con lib/: hay que compilar con mvn -Pfast-startup package");
+        }
+        for (String mode : modes) {
+            if (!MODES.containsKey(mode)) {
+                throw new IllegalArgumentException("Modo desconocido en bench.modes: " + mode);
+            }
+            if (MODES.get(mode).stream().anyMatch(arg -> arg.startsWith("-XX:SharedArchiveFile"))
+                    && !new File(jar.getParentFile(), "app.jsa").isFile()) {
+                throw new IllegalStateException("Falta app.jsa junto al jar: el build se hizo con -Dcds.skip=true");
+            }
+        }
+
+        EmbeddedPostgres postgres = null;
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+        String user = System.getProperty("bench.jdbc-user", "postgres");
+        String password = System.getProperty("bench.jdbc-password", "postgres");
+        if (jdbcUrl == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+            user = "postgres";
+            password = "postgres";
+        }
+        try {
+            StartupBenchmark benchmark = new StartupBenchmark(jar, List.of(
+                    "--spring.datasource.url=" + jdbcUrl,
+                    "--spring.datasource.username=" + user,
+                    "--spring.datasource.password=" + password), timeout);
+            // Un arranque sin medir: aplica las migraciones y calienta la caché de disco del sistema
+            benchmark.startOnce("plain");
+            Map<String, List<Long>> results = new LinkedHashMap<>();
+            modes.forEach(mode -> results.put(mode, new ArrayList<>()));
+            // Modos intercalados para que las variaciones de la máquina afecten a todos por igual
+            for (int run = 0; run < runs; run++) {
+                for (String mode : modes) {
+                    long millis = benchmark.startOnce(mode);
+                    results.get(mode).add(millis);
+                    System.out.printf("%-8s run %d: %d ms%n", mode, run + 1, millis);
+                }
+            }
+            report(results, System.getProperty("bench.output"));
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private long startOnce(String mode) throws Exception {
+        int port = freePort();
+        int managementPort = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(MODES.get(mode));
+        command.add("-jar");
+        command.add(jar.getName());
+        command.add("--server.port=" + port);
+        command.add("--management.server.port=" + managementPort);
+        command.addAll(datasource);
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + managementPort + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1)).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(jar.getParentFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("El proceso (" + mode + ") terminó con código " + process.exitValue()
+                            + " antes de responder; ver " + log);
+                }
+                if (System.nanoTime() - start > timeout.toNanos()) {
+                    throw new IllegalStateException("Sin respuesta en " + timeout.toSeconds() + " s (" + mode + "); ver " + log);
+                }
+                try {
+                    if (http.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // Todavía no escucha
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void report(Map<String, List<Long>> results, String output) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        Long baseline = results.containsKey("plain") ? median(results.get("plain")) : null;
+        System.out.println();
+        System.out.printf("%-8s %8s %8s %8s %9s%n", "modo", "min ms", "med ms", "max ms", "vs plain");
+        for (Map.Entry<String, List<Long>> entry : results.entrySet()) {
+            List<Long> times = new ArrayList<>(entry.getValue());
+            Collections.sort(times);
+            long median = median(times);
+            String speedup = baseline != null ? String.format("%.2fx", (double) baseline / median) : "-";
+            System.out.printf("%-8s %8d %8d %8d %9s%n", entry.getKey(), times.get(0), median, times.get(times.size() - 1), speedup);
+            Map<String, Object> mode = new LinkedHashMap<>();
+            mode.put("runsMillis", entry.getValue());
+            mode.put("minMillis", times.get(0));
+            mode.put("medianMillis", median);
+            mode.put("maxMillis", times.get(times.size() - 1));
+            json.put(entry.getKey(), mode);
+        }
+        if (output != null) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(output), json);
+            System.out.println("Resultados guardados en " + output);
+        }
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,74 @@
+package com.miapp.mediastreaming.bench;
+
+import com.miapp.mediastreaming.model.MediaServer;
+import com.miapp.mediastreaming.service.StreamPlacement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Coste de StreamPlacement con el anillo ya en memoria: place() por stream y serversChanged() al cambiar la capacidad
+// de un servidor (reconstrucción incremental del anillo). La primera carga del anillo sale de H2 en el setup.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamPlacementBenchmark {
+
+    private static final long USER_ID = 1L;
+    private static final int STREAMS = 1 << 16;
+
+    @Param({"10", "100", "1000"})
+    public int servers;
+
+    private StreamPlacement placement;
+    private String[] streamIds;
+    private MediaServer changed;
+    private List<MediaServer> changedList;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:placement-" + servers + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table media_servers (id bigint primary key, user_id bigint, name varchar(255), "
+                + "ip_address varchar(255), port integer, capacity integer)");
+        for (int i = 1; i <= servers; i++) {
+            // Capacidades de 50 a 200 para que el anillo tenga tramos de tamaños distintos
+            jdbcTemplate.update("insert into media_servers values (?, ?, ?, ?, ?, ?)",
+                    i, USER_ID, "server" + i, "10.0." + (i >> 8) + "." + (i & 0xff), 1935, 50 + (i % 4) * 50);
+        }
+        placement = new StreamPlacement(jdbcTemplate, new SimpleMeterRegistry(), 160, 100, 1600, 1000, 0.2);
+        streamIds = new String[STREAMS];
+        for (int i = 0; i < STREAMS; i++) {
+            streamIds[i] = UUID.randomUUID().toString();
+        }
+        placement.place(USER_ID, streamIds[0]);
+        changed = new MediaServer("server1", "10.0.0.1");
+        changed.setId(1L);
+        changed.setPort(1935);
+        changedList = List.of(changed);
+    }
+
+    @Benchmark
+    public StreamPlacement.Placement place(Cursor cursor) {
+        return placement.place(USER_ID, streamIds[cursor.next++ & (STREAMS - 1)]);
+    }
+
+    @Benchmark
+    public void serversChanged(Cursor cursor) {
+        changed.setCapacity((cursor.next++ & 1) == 0 ? 100 : 200);
+        placement.serversChanged(USER_ID, changedList);
+    }
+}
@@ -0,0 +1,163 @@
+package com.miapp.mediastreaming.bench;
+
+import com.miapp.mediastreaming.MediaStreamingApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Compara el modo de hilos de plataforma con el perfil "virtual" bajo una carga limitada por la BD.
+// Arranca la aplicación una vez por modo en este proceso, contra un PostgreSQL embebido (o el de bench.jdbc-url),
+// y lanza GET /api/auth/servers (una consulta por petición) en modelo abierto, como LoadHarness: las peticiones
+// salen a ritmo fijo y la latencia se mide desde el instante en que debían salir, así que la cola cuenta.
+// Cada ritmo de bench.rates se mide por separado para ver dónde se satura cada modo.
+//
+//   mvn -f benchmarks/pom.xml compile exec:java -Dexec.mainClass=com.miapp.mediastreaming.bench.ThreadModeBenchmark
+//
+// Parámetros (-D): bench.rates (100,200,400 pet/s), bench.clients (1000 en vuelo como máximo),
+//                  bench.servers (200), bench.page-size (100), bench.warmup (10 s), bench.duration (30 s),
+//                  bench.jdbc-url/bench.jdbc-user/bench.jdbc-password (BD externa)
+public final class ThreadModeBenchmark {
+
+    private record Result(String mode, double rate, long requests, long errors, double seconds,
+                          Histogram latency, Histogram service) {}
+
+    public static void main(String[] args) throws Exception {
+        List<Double> rates = new ArrayList<>();
+        for (String rate : System.getProperty("bench.rates", "100,200,400").split(",")) {
+            rates.add(Double.parseDouble(rate.trim()));
+        }
+        int clients = Integer.getInteger("bench.clients", 1000);
+        int servers = Integer.getInteger("bench.servers", 200);
+        int pageSize = Integer.getInteger("bench.page-size", 100);
+        Duration warmup = Duration.ofSeconds(Long.getLong("bench.warmup", 10));
+        Duration duration = Duration.ofSeconds(Long.getLong("bench.duration", 30));
+        String jdbcUrl = System.getProperty("bench.jdbc-url");
+
+        EmbeddedPostgres postgres = null;
+        String user = System.getProperty("bench.jdbc-user", "postgres");
+        String password = System.getProperty("bench.jdbc-password", "postgres");
+        if (jdbcUrl == null) {
+            postgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+            user = "postgres";
+            password = "postgres";
+        }
+        List<Result> results = new ArrayList<>();
+        try {
+            for (boolean virtual : new boolean[] {false, true}) {
+                results.addAll(run(virtual, jdbcUrl, user, password, rates, clients, servers, pageSize, warmup, duration));
+            }
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+
+        System.out.printf("%nclients=%d servers=%d page-size=%d duration=%ds cpus=%d%n", clients, servers, pageSize,
+                duration.toSeconds(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %8s %9s %8s %10s %10s %10s %10s %12s%n", "mode", "rate", "req/s", "errors",
+                "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "svc p99(ms)");
+        for (Result r : results) {
+            Histogram h = r.latency();
+            System.out.printf("%-10s %8.0f %9.1f %8d %10.2f %10.2f %10.2f %10.2f %12.2f%n", r.mode(), r.rate(),
+                    r.requests() / r.seconds(), r.errors(), millis(h.getValueAtPercentile(50)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()),
+                    millis(r.service().getValueAtPercentile(99)));
+        }
+    }
+
+    private static List<Result> run(boolean virtual, String jdbcUrl, String user, String password, List<Double> rates,
+                                    int clients, int servers, int pageSize, Duration warmup, Duration duration)
+            throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MediaStreamingApplication.class)
+                .profiles(virtual ? new String[] {"virtual"} : new String[0])
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + user,
+                        "--spring.datasource.password=" + password,
+                        // Se mide el modo de hilos, no el limitador: todo sale de una IP y con un solo token
+                        "--app.rate-limit.enabled=false",
+                        "--app.servers.address-policy.enabled=false",
+                        "--logging.level.com.miapp.mediastreaming=WARN");
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            BenchClient client = new BenchClient(port);
+            String token = client.createUserWithServers("threads_" + mode, servers);
+            HttpRequest request = client.get("/api/auth/servers?size=" + pageSize, token);
+            List<Result> results = new ArrayList<>();
+            for (double rate : rates) {
+                drive(client, request, mode, rate, clients, warmup);
+                results.add(drive(client, request, mode, rate, clients, duration));
+            }
+            return results;
+        } finally {
+            context.close();
+        }
+    }
+
+    // Modelo abierto: la petición i debe salir en start + i / rate, pase lo que pase con las anteriores
+    private static Result drive(BenchClient client, HttpRequest request, String mode, double rate, int clients,
+                                Duration duration) throws InterruptedException {
+        Histogram latency = new ConcurrentHistogram(3);
+        Histogram service = new ConcurrentHistogram(3);
+        LongAdder errors = new LongAdder();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        Semaphore inFlight = new Semaphore(clients);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                // Si se alcanza el límite, la espera queda dentro de la latencia porque se mide desde intended
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        long sent = System.nanoTime();
+                        HttpResponse<String> response = client.send(request);
+                        long done = System.nanoTime();
+                        if (response.statusCode() != 200) {
+                            errors.increment();
+                            return;
+                        }
+                        latency.recordValue(done - intended);
+                        service.recordValue(done - sent);
+                    } catch (Exception e) {
+                        errors.increment();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        // Incluye lo que tardan en terminar las peticiones en vuelo al cerrar la ventana
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(mode, rate, latency.getTotalCount(), errors.sum(), seconds, latency, service);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,88 @@
+package com.miapp.mediastreaming.bench;
+
+import com.miapp.mediastreaming.MediaStreamingApplication;
+import com.miapp.mediastreaming.model.User;
+import com.miapp.mediastreaming.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// findByEmail/findByToken de UserRepository contra H2 embebida (modo PostgreSQL) con el esquema que genera
+// la aplicación; mide el camino completo del repositorio: proxy, transacción de solo lectura, consulta y mapeo
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 3) // Hibernate tarda en estabilizarse tras el arranque
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserLookupBenchmark {
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private String[] emails;
+    private String[] tokens;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Como argumentos y no como properties(): deben prevalecer sobre application.properties
+        context = new SpringApplicationBuilder(MediaStreamingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:lookup;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        // Las migraciones usan índices parciales de PostgreSQL que H2 no admite
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--app.servers.probe.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.miapp.mediastreaming=WARN");
+        userRepository = context.getBean(UserRepository.class);
+        emails = new String[users];
+        tokens = new String[users];
+        // Como en producción se guarda el hash; también satisface las validaciones de User al persistir
+        String hash = new BCryptPasswordEncoder(4).encode(BenchClient.PASSWORD);
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            User user = new User("lookup" + i, "lookup" + i + "@bench.com", hash);
+            user.setToken(UUID.randomUUID().toString());
+            emails[i] = user.getEmail();
+            tokens[i] = user.getToken();
+            batch.add(user);
+            if (batch.size() == 500 || i == users - 1) {
+                userRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User findByEmail(Cursor cursor) {
+        return userRepository.findByEmail(emails[cursor.next++ % users]);
+    }
+
+    @Benchmark
+    public User findByToken(Cursor cursor) {
+        return userRepository.findByToken(tokens[cursor.next++ % users]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.miapp.mediastreaming.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miapp.mediastreaming.model.MediaServer;
+import com.miapp.mediastreaming.model.MediaServerView;
+import com.miapp.mediastreaming.model.ServerPage;
+import com.miapp.mediastreaming.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Serialización JSON de User con su lista mediaServers (@JsonManagedReference) frente a la página de
+// MediaServerView que devuelve GET /servers, con el ObjectMapper que configura Spring Boot
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int servers;
+
+    private ObjectMapper mapper;
+    private User user;
+    private ServerPage page;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        user = new User("bench", "bench@bench.com", "$2a$10$abcdefghijklmnopqrstuuABCDEFGHIJKLMNOPQRSTUVWXYZ01234");
+        user.setId(1L);
+        user.setToken(UUID.randomUUID().toString());
+        List<MediaServerView> views = new ArrayList<>(servers);
+        for (int i = 0; i < servers; i++) {
+            MediaServer server = new MediaServer("server-" + i, "10.0." + (i / 256 % 256) + "." + (i % 256));
+            server.setId((long) i + 1);
+            server.setPort(1935);
+            server.setStreamKey(UUID.randomUUID().toString());
+            server.setStatus(i % 3 == 0 ? "OFFLINE" : "ONLINE");
+            server.setLastSeen(Instant.now());
+            server.setCurrentViewers(i % 500);
+            server.setBitrateKbps(4500L);
+            server.setUser(user);
+            user.getMediaServers().add(server);
+            views.add(MediaServerView.of(server));
+        }
+        page = new ServerPage(views, null);
+    }
+
+    @Benchmark
+    public byte[] user() throws Exception {
+        return mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serverPage() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,14 @@
+package com.miapp.mediastreaming.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.List;
+
+// Identidad resuelta a partir del token: es lo que se guarda en la caché y como principal en el SecurityContext
+public record AuthenticatedUser(Long id, String email, List<GrantedAuthority> authorities) {
+
+    public static AuthenticatedUser of(com.miapp.mediastreaming.model.User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), AuthorityUtils.createAuthorityList("USER"));
+    }
+}
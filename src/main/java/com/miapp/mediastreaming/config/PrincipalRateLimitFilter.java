@@ -0,0 +1,73 @@
+package com.miapp.mediastreaming.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Límites de las rutas de servidores por usuario. Va después del filtro de token: la clave es el id del usuario ya
+// autenticado y no la cabecera Authorization, así que mandar tokens inventados no crea cubos nuevos ni puede llenar
+// la tabla. Sin autenticar (la petición acabará en 401/403) la clave es la IP.
+public class PrincipalRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrincipalRateLimitFilter.class);
+
+    private final RateLimiter rateLimiter;
+    private final RateLimiter.Rule serverReadsRule;
+    private final RateLimiter.Rule serverWritesRule;
+
+    public PrincipalRateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.serverReadsRule = rateLimiter.rule(RateLimiter.SERVER_READS);
+        this.serverWritesRule = rateLimiter.rule(RateLimiter.SERVER_WRITES);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimiter.isEnabled() || !request.getRequestURI().startsWith(RateLimitFilter.PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RateLimiter.Rule rule = routeRule(request);
+        if (rule != null) {
+            String key = clientKey(request);
+            long wait = rule.tryAcquire(key);
+            if (wait > 0) {
+                logger.debug("Límite {} superado para {} en {}", rule.name(), key, request.getRequestURI());
+                RateLimitFilter.reject(response, wait);
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private RateLimiter.Rule routeRule(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(RateLimitFilter.PREFIX.length());
+        String method = request.getMethod();
+        if ("POST".equals(method)) {
+            return path.equals("register-server") || path.startsWith("servers/") ? serverWritesRule : null;
+        }
+        if (path.equals("servers") || path.startsWith("servers/") || path.equals("placement")) {
+            return "GET".equals(method) ? serverReadsRule : serverWritesRule;
+        }
+        return null;
+    }
+
+    // Los ids no pueden coincidir con una IP: no llevan '.' ni ':'
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.id().toString();
+        }
+        return request.getRemoteAddr();
+    }
+}
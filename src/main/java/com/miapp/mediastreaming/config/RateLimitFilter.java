@@ -0,0 +1,78 @@
+package com.miapp.mediastreaming.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Va antes del filtro de token para que un cliente por encima de su límite no llegue a consultar la caché ni la BD:
+// límite por IP en todo /api/auth/** y los de login y registro, que son anónimos. Los de las rutas de servidores
+// necesitan saber quién llama y van en PrincipalRateLimitFilter, después del filtro de token.
+// La IP es getRemoteAddr(): detrás de un proxy hay que activar server.forward-headers-strategy, no leer X-Forwarded-For aquí.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+    static final String PREFIX = "/api/auth/";
+
+    private final RateLimiter rateLimiter;
+    private final RateLimiter.Rule ipRule;
+    private final RateLimiter.Rule loginRule;
+    private final RateLimiter.Rule registerRule;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.ipRule = rateLimiter.rule(RateLimiter.IP);
+        this.loginRule = rateLimiter.rule(RateLimiter.LOGIN);
+        this.registerRule = rateLimiter.rule(RateLimiter.REGISTER);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // La ingesta la llaman los servidores de medios con el secreto compartido y no se limita por cliente
+        return !rateLimiter.isEnabled() || !request.getRequestURI().startsWith(PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String ip = request.getRemoteAddr();
+        long wait = ipRule.tryAcquire(ip);
+        if (wait == 0) {
+            RateLimiter.Rule rule = routeRule(request);
+            if (rule != null) {
+                wait = rule.tryAcquire(ip);
+            }
+        }
+        if (wait > 0) {
+            logger.debug("Límite superado para {} en {}", ip, request.getRequestURI());
+            reject(response, wait);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    static void reject(HttpServletResponse response, long waitNanos) {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(waitNanos)));
+    }
+
+    private RateLimiter.Rule routeRule(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(PREFIX.length());
+        if (path.equals("login")) {
+            return loginRule;
+        }
+        if (path.equals("register")) {
+            return registerRule;
+        }
+        return null;
+    }
+}
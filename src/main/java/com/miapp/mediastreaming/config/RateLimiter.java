@@ -0,0 +1,183 @@
+package com.miapp.mediastreaming.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Límites de peticiones por cliente con GCRA: cada cubo es un único AtomicLong con el instante teórico de la
+// siguiente llegada (TAT) y se actualiza con CAS, sin locks. Un cubo cuyo TAT ya pasó equivale a uno lleno,
+// así que la limpieza los descarta sin perder información y la memoria depende solo de los clientes activos.
+// Con la tabla llena, los clientes nuevos comparten un único cubo de desbordamiento: nunca pasan sin límite.
+@Component
+public class RateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    public static final String IP = "ip";
+    public static final String LOGIN = "login";
+    public static final String LOGIN_IDENTIFIER = "login-identifier";
+    public static final String LOGIN_ACCOUNT = "login-account";
+    public static final String REGISTER = "register";
+    public static final String SERVER_READS = "server-reads";
+    public static final String SERVER_WRITES = "server-writes";
+
+    private static final long PERIOD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public final class Rule {
+        private final String name;
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final ReentrantLock sweepLock = new ReentrantLock();
+        private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+        // Separación entre peticiones a ritmo sostenido y margen que permite la ráfaga (limit - 1 intervalos)
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final Counter rejected;
+        private final Counter overflowed;
+
+        private Rule(String name, int perMinute, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.intervalNanos = perMinute > 0 ? PERIOD_NANOS / perMinute : 0;
+            this.toleranceNanos = intervalNanos * Math.max(0, perMinute - 1);
+            this.rejected = Counter.builder("http.rate.limited").tag("rule", name).register(meterRegistry);
+            this.overflowed = Counter.builder("http.rate.limit.overflow").tag("rule", name).register(meterRegistry);
+            Gauge.builder("http.rate.limit.buckets", buckets, Map::size).tag("rule", name).register(meterRegistry);
+        }
+
+        // Devuelve 0 si se permite, o los nanosegundos que faltan para que se permita
+        public long tryAcquire(String key) {
+            if (!enabled || intervalNanos == 0 || key == null) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            AtomicLong tat = buckets.get(key);
+            if (tat == null) {
+                if (buckets.size() >= maxBuckets && !makeRoom(now)) {
+                    // Lleno incluso tras limpiar: dejarlo pasar sin seguimiento desactivaría el límite para quien
+                    // consiga llenar la tabla. Los que no caben se reparten el cubo de desbordamiento
+                    overflowed.increment();
+                    return acquire(overflow, now);
+                }
+                tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+            return acquire(tat, now);
+        }
+
+        private long acquire(AtomicLong tat, long now) {
+            while (true) {
+                long current = tat.get();
+                long start = current - now > 0 ? current : now;
+                long wait = start - toleranceNanos - now;
+                if (wait > 0) {
+                    rejected.increment();
+                    return wait;
+                }
+                if (tat.compareAndSet(current, start + intervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+
+        // Devuelve el permiso de un tryAcquire que no debía contar (p. ej. un login correcto)
+        public void refund(String key) {
+            if (!enabled || intervalNanos == 0 || key == null) {
+                return;
+            }
+            AtomicLong tat = buckets.get(key);
+            if (tat != null) {
+                tat.addAndGet(-intervalNanos);
+            }
+        }
+
+        private boolean makeRoom(long now) {
+            if (sweepLock.tryLock()) {
+                try {
+                    sweep(now);
+                } finally {
+                    sweepLock.unlock();
+                }
+            }
+            return buckets.size() < maxBuckets;
+        }
+
+        // Si un cubo se retira justo cuando otro hilo lo usa, como mucho ese cliente recupera una ráfaga
+        private int sweep(long now) {
+            int before = buckets.size();
+            buckets.values().removeIf(tat -> tat.get() - now <= 0);
+            return before - buckets.size();
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxBuckets;
+    private final Map<String, Rule> rules = new LinkedHashMap<>();
+
+    public RateLimiter(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${app.rate-limit.max-buckets:250000}") int maxBuckets,
+                       @Value("${app.rate-limit.ip:1200}") int ip,
+                       @Value("${app.rate-limit.login:30}") int login,
+                       @Value("${app.rate-limit.login-identifier:10}") int loginIdentifier,
+                       @Value("${app.rate-limit.login-account:30}") int loginAccount,
+                       @Value("${app.rate-limit.register:10}") int register,
+                       @Value("${app.rate-limit.server-reads:600}") int serverReads,
+                       @Value("${app.rate-limit.server-writes:120}") int serverWrites,
+                       MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxBuckets = maxBuckets;
+        rules.put(IP, new Rule(IP, ip, meterRegistry));
+        rules.put(LOGIN, new Rule(LOGIN, login, meterRegistry));
+        rules.put(LOGIN_IDENTIFIER, new Rule(LOGIN_IDENTIFIER, loginIdentifier, meterRegistry));
+        rules.put(LOGIN_ACCOUNT, new Rule(LOGIN_ACCOUNT, loginAccount, meterRegistry));
+        rules.put(REGISTER, new Rule(REGISTER, register, meterRegistry));
+        rules.put(SERVER_READS, new Rule(SERVER_READS, serverReads, meterRegistry));
+        rules.put(SERVER_WRITES, new Rule(SERVER_WRITES, serverWrites, meterRegistry));
+    }
+
+    public Rule rule(String name) {
+        Rule rule = rules.get(name);
+        if (rule == null) {
+            throw new IllegalArgumentException("Regla de límite desconocida: " + name);
+        }
+        return rule;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval:PT30S}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Rule rule : rules.values()) {
+            rule.sweepLock.lock();
+            try {
+                int removed = rule.sweep(now);
+                if (removed > 0) {
+                    logger.debug("Límite {}: {} cubos inactivos liberados", rule.name(), removed);
+                }
+            } finally {
+                rule.sweepLock.unlock();
+            }
+        }
+    }
+
+    // Segundos para la cabecera Retry-After, redondeando hacia arriba
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, Duration.ofNanos(waitNanos).plusNanos(999_999_999).toSeconds());
+    }
+}
@@ -1,12 +1,16 @@
 package com.miapp.mediastreaming.config;
 
 import com.miapp.mediastreaming.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -15,20 +19,27 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final UserRepository userRepository;
+    private final TokenCache tokenCache;
+    private final MeterRegistry meterRegistry;
+    private final RateLimiter rateLimiter;
 
     @Autowired
-    public SecurityConfig(UserRepository userRepository) {
+    public SecurityConfig(UserRepository userRepository, TokenCache tokenCache, MeterRegistry meterRegistry,
+                          RateLimiter rateLimiter) {
         this.userRepository = userRepository;
+        this.tokenCache = tokenCache;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
     }
 
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength), meterRegistry);
     }
 
     @Bean
     public TokenAuthenticationFilter tokenAuthenticationFilter() {
-        return new TokenAuthenticationFilter(userRepository);
+        return new TokenAuthenticationFilter(userRepository, tokenCache, meterRegistry);
     }
 
     @Bean
@@ -36,7 +47,12 @@ public class SecurityConfig {
         http
             .csrf().disable()
             .addFilterBefore(tokenAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+            // Los limitadores no se declaran como @Bean para que no se registren además como filtros del contenedor
+            .addFilterBefore(new RateLimitFilter(rateLimiter), TokenAuthenticationFilter.class)
+            .addFilterAfter(new PrincipalRateLimitFilter(rateLimiter), TokenAuthenticationFilter.class)
             .authorizeHttpRequests((requests) -> requests
+                // El despacho asíncrono que cierra un SseEmitter ya pasó la autorización en la petición original
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .requestMatchers("/api/auth/register", "/api/auth/login").permitAll() // Rutas públicas
                 .requestMatchers("/api/auth/**").authenticated() // Requiere autenticación para todo bajo /api/auth/
                 .anyRequest().permitAll() // Otras rutas públicas (si las hay)
@@ -1,11 +1,12 @@
 package com.miapp.mediastreaming.config;
 
 import com.miapp.mediastreaming.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -19,39 +20,61 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(TokenAuthenticationFilter.class);
     private final UserRepository userRepository;
+    private final TokenCache tokenCache;
+    private final MeterRegistry meterRegistry;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+    private final Timer anonymousTimer;
 
-    public TokenAuthenticationFilter(UserRepository userRepository) {
+    public TokenAuthenticationFilter(UserRepository userRepository, TokenCache tokenCache, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.tokenCache = tokenCache;
+        this.meterRegistry = meterRegistry;
+        this.authenticatedTimer = Timer.builder("auth.filter").tag("result", "authenticated").register(meterRegistry);
+        this.rejectedTimer = Timer.builder("auth.filter").tag("result", "rejected").register(meterRegistry);
+        this.anonymousTimer = Timer.builder("auth.filter").tag("result", "anonymous").register(meterRegistry);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
-        logger.info("Filtro ejecutado para la solicitud: {}", request.getRequestURI());
+        // Solo se mide el trabajo del filtro, no el resto de la cadena
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Timer timer;
         String authHeader = request.getHeader("Authorization");
-        logger.info("Encabezado Authorization recibido: {}", authHeader);
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            logger.info("Token extraído: {}", token);
-            com.miapp.mediastreaming.model.User user = userRepository.findByToken(token);
-            if (user != null) {
-                logger.info("Usuario encontrado - Email: {}, Token en BD: {}", user.getEmail(), user.getToken());
-                UserDetails userDetails = org.springframework.security.core.userdetails.User
-                        .withUsername(user.getEmail())
-                        .password(user.getPassword())
-                        .authorities("USER")
-                        .build();
+            AuthenticatedUser authenticatedUser = resolve(token);
+            if (authenticatedUser != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+                        authenticatedUser, null, authenticatedUser.authorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                logger.info("Autenticación establecida para: {}", user.getEmail());
+                logger.debug("Autenticación establecida para: {}", authenticatedUser.email());
+                timer = authenticatedTimer;
             } else {
-                logger.warn("No se encontró usuario para el token: {}", token);
+                logger.debug("Token no reconocido en la solicitud: {}", request.getRequestURI());
+                timer = rejectedTimer;
             }
         } else {
-            logger.warn("Encabezado Authorization inválido o ausente: {}", authHeader);
+            timer = anonymousTimer;
         }
+        sample.stop(timer);
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private AuthenticatedUser resolve(String token) {
+        AuthenticatedUser cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = tokenCache.generation();
+        com.miapp.mediastreaming.model.User user = userRepository.findByToken(token);
+        if (user == null) {
+            return null;
+        }
+        AuthenticatedUser authenticatedUser = AuthenticatedUser.of(user);
+        tokenCache.put(token, authenticatedUser, generation);
+        return authenticatedUser;
+    }
+}
@@ -0,0 +1,104 @@
+package com.miapp.mediastreaming.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caché acotada token -> identidad con expiración por TTL, para no consultar la BD en cada petición autenticada.
+// La invalidación (login que rota el token, logout) solo borra la entrada en esta réplica: en las demás el token
+// anterior sigue aceptándose hasta que caduque su entrada, como mucho el TTL. Por eso el TTL es de segundos.
+@Component
+public class TokenCache {
+
+    private record Entry(AuthenticatedUser user, long expiresAt) {}
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Se incrementa en cada invalidación; evita cachear un resultado leído de la BD antes de un login/logout concurrente
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maxSize;
+    private final long ttlNanos;
+
+    public TokenCache(@Value("${app.auth.token-cache.max-size:100000}") int maxSize,
+                      @Value("${app.auth.token-cache.ttl:30s}") Duration ttl,
+                      MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        FunctionCounter.builder("auth.token.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("auth.token.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public AuthenticatedUser get(String token) {
+        Entry entry = entries.get(token);
+        if (entry != null) {
+            if (entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.user();
+            }
+            entries.remove(token, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Hay que leerla antes de ir a la BD y pasarla a put()
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(String token, AuthenticatedUser user, long expectedGeneration) {
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(token, new Entry(user, System.nanoTime() + ttlNanos));
+        // Si hubo una invalidación mientras se consultaba la BD, el resultado puede estar obsoleto
+        if (generation.get() != expectedGeneration) {
+            entries.remove(token);
+        }
+    }
+
+    public void invalidate(String token) {
+        generation.incrementAndGet();
+        if (token != null) {
+            entries.remove(token);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+        // Si siguen sin caber, se descartan entradas arbitrarias hasta dejar un 10% libre,
+        // para no recorrer el mapa completo en cada put con la caché llena
+        int target = maxSize - Math.max(1, maxSize / 10);
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -1,19 +1,39 @@
 package com.miapp.mediastreaming.controller;
 
+import com.miapp.mediastreaming.config.AuthenticatedUser;
+import com.miapp.mediastreaming.config.RateLimiter;
+import com.miapp.mediastreaming.config.TokenCache;
+import com.miapp.mediastreaming.model.BulkItemResult;
+import com.miapp.mediastreaming.model.BulkServerUpdateRequest;
+import com.miapp.mediastreaming.model.LoginResponse;
 import com.miapp.mediastreaming.model.User;
+import com.miapp.mediastreaming.model.UserResponse;
 import com.miapp.mediastreaming.model.MediaServer;
 import com.miapp.mediastreaming.model.MediaServerRequest;
+import com.miapp.mediastreaming.model.MediaServerView;
+import com.miapp.mediastreaming.model.ServerPage;
+import com.miapp.mediastreaming.model.ServerStatusPage;
 import com.miapp.mediastreaming.repository.UserRepository;
+import com.miapp.mediastreaming.service.InvalidServerAddressException;
+import com.miapp.mediastreaming.service.MediaServerService;
+import com.miapp.mediastreaming.service.PasswordHashingBusyException;
+import com.miapp.mediastreaming.service.PasswordHashingService;
+import com.miapp.mediastreaming.service.ServerEventBroadcaster;
+import com.miapp.mediastreaming.service.StreamPlacement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.util.List;
 import java.util.UUID;
@@ -23,12 +43,30 @@ import java.util.UUID;
 @Validated
 public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+    private static final String RETRY_AFTER_SECONDS = "1";
+    // Solo el cliente puede guardarlo y debe revalidar siempre con el ETag
+    private static final CacheControl LISTING_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private MediaServerService mediaServerService;
+
+    @Autowired
+    private ServerEventBroadcaster serverEventBroadcaster;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private StreamPlacement streamPlacement;
 
     public static class RegisterRequest {
         @Valid
@@ -42,7 +80,7 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<User> register(@Valid @RequestBody RegisterRequest request) {
+    public ResponseEntity<UserResponse> register(@Valid @RequestBody RegisterRequest request) {
         try {
             User user = request.getUser();
             if (!user.getPassword().equals(request.getConfirmPassword())) {
@@ -53,10 +91,18 @@ public class AuthController {
                 logger.warn("Intento de registro con email ya existente: {}", user.getEmail());
                 return ResponseEntity.badRequest().body(null);
             }
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            // El índice único de username haría fallar el insert con un 500
+            if (userRepository.findByUsername(user.getUsername()) != null) {
+                logger.warn("Intento de registro con nombre de usuario ya existente: {}", user.getUsername());
+                return ResponseEntity.badRequest().body(null);
+            }
+            user.setPassword(passwordHashingService.encode(user.getPassword()));
             User savedUser = userRepository.save(user);
             logger.info("Usuario registrado exitosamente: {}", savedUser.getEmail());
-            return ResponseEntity.ok(savedUser);
+            return ResponseEntity.ok(UserResponse.of(savedUser));
+        } catch (PasswordHashingBusyException e) {
+            logger.warn("Registro rechazado por saturación del pool de hashing");
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(null);
         } catch (Exception e) {
             logger.error("Error al registrar usuario: {}", request.getUser().getEmail(), e);
             return ResponseEntity.status(500).body(null);
@@ -64,21 +110,53 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<User> login(@RequestBody User user) {
+    public ResponseEntity<LoginResponse> login(@RequestBody User user, HttpServletRequest httpRequest) {
+        // Solo cuentan los fallos: un cubo por IP y cuenta, que frena a un cliente sin dejarle bloquear la cuenta,
+        // y otro por cuenta con un límite más alto, que frena a quien reparte los intentos entre muchas IPs
+        String identifier = user.getEmail() != null ? user.getEmail() : user.getUsername();
+        RateLimiter.Rule identifierRule = rateLimiter.rule(RateLimiter.LOGIN_IDENTIFIER);
+        RateLimiter.Rule accountRule = rateLimiter.rule(RateLimiter.LOGIN_ACCOUNT);
+        String accountKey = identifier != null ? identifier.toLowerCase() : null;
+        String limitKey = accountKey != null ? httpRequest.getRemoteAddr() + '|' + accountKey : null;
         try {
+            long wait = identifierRule.tryAcquire(limitKey);
+            if (wait == 0) {
+                wait = accountRule.tryAcquire(accountKey);
+                if (wait > 0) {
+                    // El intento no llega a comprobarse: no cuenta como fallo de esta IP
+                    identifierRule.refund(limitKey);
+                }
+            }
+            if (wait > 0) {
+                logger.warn("Demasiados intentos de login para: {}", identifier);
+                return ResponseEntity.status(429)
+                        .header(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(wait)))
+                        .body(null);
+            }
             User existingUser = userRepository.findByEmail(user.getEmail());
             if (existingUser == null) {
                 existingUser = userRepository.findByUsername(user.getUsername());
             }
-            if (existingUser == null || !passwordEncoder.matches(user.getPassword(), existingUser.getPassword())) {
+            if (existingUser == null || !passwordHashingService.matches(user.getPassword(), existingUser.getPassword())) {
                 logger.warn("Intento de login fallido para: {}", user.getEmail() != null ? user.getEmail() : user.getUsername());
                 return ResponseEntity.badRequest().body(null);
             }
+            identifierRule.refund(limitKey);
+            accountRule.refund(accountKey);
+            rehashIfNeeded(existingUser, user.getPassword());
+            // El token anterior deja de ser válido: se quita solo esa entrada de la caché
+            String previousToken = existingUser.getToken();
             String token = UUID.randomUUID().toString();
             existingUser.setToken(token);
             userRepository.save(existingUser);
+            tokenCache.invalidate(previousToken);
             logger.info("Login exitoso para: {}", existingUser.getEmail());
-            return ResponseEntity.ok(existingUser);
+            return ResponseEntity.ok(LoginResponse.of(existingUser));
+        } catch (PasswordHashingBusyException e) {
+            identifierRule.refund(limitKey);
+            accountRule.refund(accountKey);
+            logger.warn("Login rechazado por saturación del pool de hashing");
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(null);
         } catch (Exception e) {
             logger.error("Error al iniciar sesión", e);
             return ResponseEntity.status(500).body(null);
@@ -86,57 +164,112 @@ public class AuthController {
     }
 
     @PostMapping("/register-server")
-    public ResponseEntity<MediaServer> registerServer(@Valid @RequestBody MediaServerRequest request) {
+    public ResponseEntity<MediaServerView> registerServer(@Valid @RequestBody MediaServerRequest request) {
         try {
-            User user = getAuthenticatedUser();
+            AuthenticatedUser principal = getPrincipal();
             if (request.getServerName() == null || request.getServerName().trim().isEmpty()) {
                 logger.warn("El nombre del servidor no puede ser nulo o vacío");
                 return ResponseEntity.badRequest().body(null);
             }
-            MediaServer mediaServer = new MediaServer();
-            mediaServer.setName(request.getServerName());
-            mediaServer.setIpAddress(request.getIpAddress());
-            mediaServer.setPort(request.getPort() != null ? request.getPort() : 8080);
-            mediaServer.setStreamKey(UUID.randomUUID().toString());
-            mediaServer.setStatus("OFFLINE");
-            mediaServer.setUser(user);
-            user.getMediaServers().add(mediaServer);
-            userRepository.save(user);
-            logger.info("Servidor registrado para usuario: {}", user.getEmail());
-            return ResponseEntity.ok(mediaServer);
+            MediaServer mediaServer = mediaServerService.register(principal.id(), request);
+            logger.info("Servidor registrado para usuario: {}", principal.email());
+            return ResponseEntity.ok(MediaServerView.of(mediaServer));
+        } catch (InvalidServerAddressException e) {
+            logger.warn("Alta de servidor rechazada: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(null);
         } catch (Exception e) {
             logger.error("Error al registrar servidor", e);
             return ResponseEntity.status(500).body(null);
         }
     }
 
+    // Con If-None-Match y sin cambios desde entonces responde 304 sin consultar ni serializar los servidores
     @GetMapping("/servers")
-    public ResponseEntity<List<MediaServer>> getUserServers() {
+    public ResponseEntity<ServerPage> getUserServers(
+            @RequestParam(value = "size", defaultValue = "" + MediaServerService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "after", required = false) Long after,
+            WebRequest webRequest) {
         try {
-            User user = getAuthenticatedUser();
-            logger.info("Obteniendo servidores para usuario: {}", user.getEmail());
-            return ResponseEntity.ok(user.getMediaServers());
+            AuthenticatedUser principal = getPrincipal();
+            String etag = mediaServerService.serverSetETag(principal.id());
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(304).cacheControl(LISTING_CACHE_CONTROL).build();
+            }
+            logger.debug("Obteniendo servidores para usuario: {}", principal.email());
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(LISTING_CACHE_CONTROL)
+                    .body(mediaServerService.listServers(principal.id(), after, size));
         } catch (Exception e) {
             logger.error("Error al obtener servidores", e);
             return ResponseEntity.status(500).body(null);
         }
     }
 
+    // Estado, último heartbeat, espectadores y bitrate con el mismo cursor que /servers; sin ETag ni caché
+    @GetMapping("/servers/status")
+    public ResponseEntity<ServerStatusPage> getUserServerStatuses(
+            @RequestParam(value = "size", defaultValue = "" + MediaServerService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "after", required = false) Long after) {
+        try {
+            AuthenticatedUser principal = getPrincipal();
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(mediaServerService.listStatuses(principal.id(), after, size));
+        } catch (Exception e) {
+            logger.error("Error al obtener el estado de los servidores", e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    // Flujo SSE de altas, cambios, bajas y estado de los servidores del usuario; Last-Event-ID reanuda sin perder eventos
+    @GetMapping(value = "/servers/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamServerEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam) {
+        try {
+            AuthenticatedUser principal = getPrincipal();
+            Long lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+            logger.debug("Suscripción a eventos de servidores para usuario: {}", principal.email());
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no") // Evita que un proxy nginx acumule los eventos
+                    .body(serverEventBroadcaster.subscribe(principal.id(), lastEventId));
+        } catch (Exception e) {
+            logger.error("Error al suscribirse a eventos de servidores", e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    // Servidor del usuario que debe recibir el stream: siempre el mismo mientras no cambie el conjunto de servidores
+    @GetMapping("/placement")
+    public ResponseEntity<StreamPlacement.Placement> placeStream(@RequestParam("streamId") String streamId) {
+        try {
+            AuthenticatedUser principal = getPrincipal();
+            if (streamId.isBlank()) {
+                logger.warn("Identificador de stream vacío para usuario: {}", principal.email());
+                return ResponseEntity.badRequest().body(null);
+            }
+            StreamPlacement.Placement placement = streamPlacement.place(principal.id(), streamId);
+            if (placement == null) {
+                logger.debug("Usuario sin servidores para asignar el stream: {}", principal.email());
+                return ResponseEntity.status(404).body(null);
+            }
+            return ResponseEntity.ok(placement);
+        } catch (Exception e) {
+            logger.error("Error al asignar servidor al stream: {}", streamId, e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
     @DeleteMapping("/servers/{id}")
     public ResponseEntity<Void> deleteServer(@PathVariable("id") Long id) {
         try {
-            User user = getAuthenticatedUser();
-            MediaServer serverToDelete = user.getMediaServers().stream()
-                    .filter(server -> server.getId().equals(id))
-                    .findFirst()
-                    .orElse(null);
-            if (serverToDelete == null) {
-                logger.warn("Servidor con ID {} no encontrado para usuario: {}", id, user.getEmail());
+            AuthenticatedUser principal = getPrincipal();
+            if (!mediaServerService.delete(principal.id(), id)) {
+                logger.warn("Servidor con ID {} no encontrado para usuario: {}", id, principal.email());
                 return ResponseEntity.status(404).build();
             }
-            user.getMediaServers().remove(serverToDelete);
-            userRepository.save(user);
-            logger.info("Servidor con ID {} borrado exitosamente para usuario: {}", id, user.getEmail());
+            logger.info("Servidor con ID {} borrado exitosamente para usuario: {}", id, principal.email());
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
             logger.error("Error al borrar servidor con ID: {}", id, e);
@@ -145,42 +278,89 @@ public class AuthController {
     }
 
     @PutMapping("/servers/{id}")
-    public ResponseEntity<MediaServer> updateServer(@PathVariable("id") Long id, 
+    public ResponseEntity<MediaServerView> updateServer(@PathVariable("id") Long id, 
                                                     @Valid @RequestBody MediaServerRequest request) {
         try {
-            User user = getAuthenticatedUser();
-            MediaServer serverToUpdate = user.getMediaServers().stream()
-                    .filter(server -> server.getId().equals(id))
-                    .findFirst()
-                    .orElse(null);
-            if (serverToUpdate == null) {
-                logger.warn("Servidor con ID {} no encontrado para usuario: {}", id, user.getEmail());
-                return ResponseEntity.status(404).body(null);
-            }
+            AuthenticatedUser principal = getPrincipal();
             if (request.getServerName() == null || request.getServerName().trim().isEmpty()) {
                 logger.warn("El nombre del servidor no puede ser nulo o vacío");
                 return ResponseEntity.badRequest().body(null);
             }
-            serverToUpdate.setName(request.getServerName());
-            serverToUpdate.setIpAddress(request.getIpAddress());
-            serverToUpdate.setPort(request.getPort() != null ? request.getPort() : serverToUpdate.getPort());
-            userRepository.save(user);
-            logger.info("Servidor con ID {} actualizado para usuario: {}", id, user.getEmail());
-            return ResponseEntity.ok(serverToUpdate);
+            MediaServer serverToUpdate = mediaServerService.update(principal.id(), id, request);
+            if (serverToUpdate == null) {
+                logger.warn("Servidor con ID {} no encontrado para usuario: {}", id, principal.email());
+                return ResponseEntity.status(404).body(null);
+            }
+            logger.info("Servidor con ID {} actualizado para usuario: {}", id, principal.email());
+            return ResponseEntity.ok(MediaServerView.of(serverToUpdate));
+        } catch (InvalidServerAddressException e) {
+            logger.warn("Modificación del servidor {} rechazada: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().body(null);
         } catch (Exception e) {
             logger.error("Error al actualizar servidor con ID: {}", id, e);
             return ResponseEntity.status(500).body(null);
         }
     }
     
+    @PostMapping("/servers/bulk")
+    public ResponseEntity<List<BulkItemResult>> registerServers(@RequestBody List<MediaServerRequest> requests) {
+        try {
+            AuthenticatedUser principal = getPrincipal();
+            if (requests.size() > MediaServerService.MAX_BULK_ITEMS) {
+                logger.warn("Alta masiva de {} servidores excede el máximo permitido", requests.size());
+                return ResponseEntity.badRequest().body(null);
+            }
+            List<BulkItemResult> results = mediaServerService.registerAll(principal.id(), requests);
+            logger.info("Alta masiva de {} servidores para usuario: {}", requests.size(), principal.email());
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            logger.error("Error en el alta masiva de servidores", e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    @PutMapping("/servers/bulk")
+    public ResponseEntity<List<BulkItemResult>> updateServers(@RequestBody List<BulkServerUpdateRequest> requests) {
+        try {
+            AuthenticatedUser principal = getPrincipal();
+            if (requests.size() > MediaServerService.MAX_BULK_ITEMS) {
+                logger.warn("Modificación masiva de {} servidores excede el máximo permitido", requests.size());
+                return ResponseEntity.badRequest().body(null);
+            }
+            List<BulkItemResult> results = mediaServerService.updateAll(principal.id(), requests);
+            logger.info("Modificación masiva de {} servidores para usuario: {}", requests.size(), principal.email());
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            logger.error("Error en la modificación masiva de servidores", e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    @DeleteMapping("/servers/bulk")
+    public ResponseEntity<List<BulkItemResult>> deleteServers(@RequestBody List<Long> ids) {
+        try {
+            AuthenticatedUser principal = getPrincipal();
+            if (ids.size() > MediaServerService.MAX_BULK_ITEMS) {
+                logger.warn("Borrado masivo de {} servidores excede el máximo permitido", ids.size());
+                return ResponseEntity.badRequest().body(null);
+            }
+            List<BulkItemResult> results = mediaServerService.deleteAll(principal.id(), ids);
+            logger.info("Borrado masivo de {} servidores para usuario: {}", ids.size(), principal.email());
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            logger.error("Error en el borrado masivo de servidores", e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
     @PostMapping("/logout")
-    public ResponseEntity<Void> logout() {
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         try {
-            User user = getAuthenticatedUser();
-            user.setToken(null);
-            userRepository.save(user);
+            AuthenticatedUser principal = getPrincipal();
+            userRepository.clearToken(principal.id());
+            tokenCache.invalidate(extractToken(authHeader));
             SecurityContextHolder.clearContext(); // Limpiar el contexto de seguridad
-            logger.info("Sesión cerrada para usuario: {}", user.getEmail());
+            logger.info("Sesión cerrada para usuario: {}", principal.email());
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             logger.error("Error al cerrar sesión", e);
@@ -188,14 +368,22 @@ public class AuthController {
         }
     }
 
-    private User getAuthenticatedUser() {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        User user = userRepository.findByEmail(userDetails.getUsername());
-        if (user == null) {
-            logger.error("Usuario autenticado no encontrado en la base de datos: {}", userDetails.getUsername());
-            throw new RuntimeException("Usuario no encontrado");
+    // Si el coste configurado de BCrypt cambió, se regenera el hash aprovechando que tenemos la contraseña en claro.
+    // Con el pool saturado se deja para el siguiente login en lugar de fallar este.
+    private void rehashIfNeeded(User existingUser, String rawPassword) {
+        if (!passwordHashingService.needsRehash(existingUser.getPassword())) {
+            return;
         }
-        return user;
+        try {
+            existingUser.setPassword(passwordHashingService.encode(rawPassword));
+            logger.info("Hash de contraseña regenerado con el coste actual para: {}", existingUser.getEmail());
+        } catch (PasswordHashingBusyException e) {
+            logger.debug("Regeneración de hash pospuesta para: {}", existingUser.getEmail());
+        }
+    }
+
+    private AuthenticatedUser getPrincipal() {
+        return (AuthenticatedUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     }
 
     private String extractToken(String authHeader) {
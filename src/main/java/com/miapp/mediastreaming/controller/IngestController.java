@@ -0,0 +1,82 @@
+package com.miapp.mediastreaming.controller;
+
+import com.miapp.mediastreaming.model.HeartbeatRequest;
+import com.miapp.mediastreaming.service.ServerStatusRegistry;
+import com.miapp.mediastreaming.service.StreamKeyIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Endpoints llamados por los propios servidores de media (no por usuarios): se identifican con su clave de stream
+// y se autentican con el secreto compartido de ingesta
+@RestController
+@RequestMapping("/api/ingest")
+@Validated
+public class IngestController {
+    private static final Logger logger = LoggerFactory.getLogger(IngestController.class);
+
+    @Autowired
+    private ServerStatusRegistry serverStatusRegistry;
+
+    @Autowired
+    private StreamKeyIndex streamKeyIndex;
+
+    @Value("${app.ingest.secret:}")
+    private String ingestSecret;
+
+    // Callback on_publish de nginx-rtmp/SRS: 2xx autoriza la publicación, cualquier otro código la rechaza.
+    // El secreto compartido va en la URL configurada en el servidor de ingesta (?secret=) o en la cabecera X-Ingest-Secret.
+    @PostMapping("/publish-check")
+    public ResponseEntity<Void> publishCheck(@RequestParam(value = "name", required = false) String name,
+                                             @RequestParam(value = "streamKey", required = false) String streamKey,
+                                             @RequestParam(value = "secret", required = false) String secret,
+                                             @RequestHeader(value = "X-Ingest-Secret", required = false) String secretHeader) {
+        if (!validSecret(secretHeader != null ? secretHeader : secret)) {
+            return ResponseEntity.status(401).build();
+        }
+        StreamKeyIndex.Owner owner = streamKeyIndex.lookup(streamKey != null ? streamKey : name);
+        if (owner == null) {
+            logger.debug("Publicación rechazada: clave de stream desconocida");
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    // Mismo secreto que publish-check: sin él, cualquiera podría marcar servidores ajenos o forzar consultas a la BD
+    // con claves inventadas
+    @PostMapping("/heartbeat")
+    public ResponseEntity<Void> heartbeat(@Valid @RequestBody HeartbeatRequest request,
+                                          @RequestParam(value = "secret", required = false) String secret,
+                                          @RequestHeader(value = "X-Ingest-Secret", required = false) String secretHeader) {
+        if (!validSecret(secretHeader != null ? secretHeader : secret)) {
+            return ResponseEntity.status(401).build();
+        }
+        try {
+            if (!serverStatusRegistry.heartbeat(request.getStreamKey(), request.getStatus(),
+                    request.getViewers(), request.getBitrateKbps(), request.getCapacity())) {
+                logger.debug("Heartbeat con clave de stream desconocida");
+                return ResponseEntity.status(404).build();
+            }
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            logger.error("Error al procesar heartbeat", e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    // Comparación en tiempo constante; sin secreto configurado el endpoint rechaza todo
+    private boolean validSecret(String provided) {
+        if (ingestSecret.isEmpty() || provided == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(ingestSecret.getBytes(StandardCharsets.UTF_8), provided.getBytes(StandardCharsets.UTF_8));
+    }
+}
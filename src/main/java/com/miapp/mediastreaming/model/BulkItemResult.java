@@ -0,0 +1,19 @@
+package com.miapp.mediastreaming.model;
+
+// Resultado de un elemento de una operación masiva; index es su posición en la petición
+public record BulkItemResult(int index, Long id, String status, String error) {
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+
+    public static BulkItemResult ok(int index, Long id, String status) {
+        return new BulkItemResult(index, id, status, null);
+    }
+
+    public static BulkItemResult error(int index, Long id, String status, String error) {
+        return new BulkItemResult(index, id, status, error);
+    }
+}
@@ -0,0 +1,16 @@
+package com.miapp.mediastreaming.model;
+
+public class BulkServerUpdateRequest extends MediaServerRequest {
+    private Long id;
+
+    // Constructores
+    public BulkServerUpdateRequest() {}
+    public BulkServerUpdateRequest(Long id, String serverName, String ipAddress, Integer port) {
+        super(serverName, ipAddress, port);
+        this.id = id;
+    }
+
+    // Getters y setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+}
@@ -0,0 +1,34 @@
+package com.miapp.mediastreaming.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+public class HeartbeatRequest {
+    @NotBlank(message = "La clave de stream no puede estar vacía")
+    private String streamKey;
+    private String status; // Opcional: OFFLINE para avisar de un apagado ordenado
+    private Integer viewers;
+    private Long bitrateKbps;
+    @Positive(message = "La capacidad debe ser mayor que cero")
+    private Integer capacity; // Opcional: capacidad actual del servidor, su peso en el reparto de streams
+
+    // Constructores
+    public HeartbeatRequest() {}
+    public HeartbeatRequest(String streamKey, Integer viewers, Long bitrateKbps) {
+        this.streamKey = streamKey;
+        this.viewers = viewers;
+        this.bitrateKbps = bitrateKbps;
+    }
+
+    // Getters y setters
+    public String getStreamKey() { return streamKey; }
+    public void setStreamKey(String streamKey) { this.streamKey = streamKey; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Integer getViewers() { return viewers; }
+    public void setViewers(Integer viewers) { this.viewers = viewers; }
+    public Long getBitrateKbps() { return bitrateKbps; }
+    public void setBitrateKbps(Long bitrateKbps) { this.bitrateKbps = bitrateKbps; }
+    public Integer getCapacity() { return capacity; }
+    public void setCapacity(Integer capacity) { this.capacity = capacity; }
+}
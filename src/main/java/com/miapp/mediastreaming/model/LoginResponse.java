@@ -0,0 +1,9 @@
+package com.miapp.mediastreaming.model;
+
+// Respuesta de login: la única que incluye el token de sesión
+public record LoginResponse(Long id, String username, String email, String token) {
+
+    public static LoginResponse of(User user) {
+        return new LoginResponse(user.getId(), user.getUsername(), user.getEmail(), user.getToken());
+    }
+}
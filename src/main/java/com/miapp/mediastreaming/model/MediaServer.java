@@ -2,12 +2,18 @@ package com.miapp.mediastreaming.model;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.Instant;
 
 @Entity
 @Table(name = "media_servers")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class MediaServer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "media_servers_seq")
+    @SequenceGenerator(name = "media_servers_seq", sequenceName = "media_servers_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -18,7 +24,16 @@ public class MediaServer {
 
     private int port; // Puerto para streaming
     private String streamKey; // Clave única para el stream
+    private Integer capacity; // Capacidad declarada: peso del servidor en el reparto de streams (StreamPlacement)
+    // Estado en vivo: lo escribe ServerStatusRegistry por JDBC (y expulsa la entidad de la caché); los UPDATE de JPA no lo tocan
+    @Column(updatable = false)
     private String status; // ONLINE, OFFLINE
+    @Column(updatable = false)
+    private Instant lastSeen; // Último heartbeat recibido
+    @Column(updatable = false)
+    private Integer currentViewers;
+    @Column(updatable = false)
+    private Long bitrateKbps;
 
     @ManyToOne
     @JsonBackReference
@@ -43,8 +58,16 @@ public class MediaServer {
     public void setPort(int port) { this.port = port; }
     public String getStreamKey() { return streamKey; }
     public void setStreamKey(String streamKey) { this.streamKey = streamKey; }
+    public Integer getCapacity() { return capacity; }
+    public void setCapacity(Integer capacity) { this.capacity = capacity; }
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
+    public Instant getLastSeen() { return lastSeen; }
+    public void setLastSeen(Instant lastSeen) { this.lastSeen = lastSeen; }
+    public Integer getCurrentViewers() { return currentViewers; }
+    public void setCurrentViewers(Integer currentViewers) { this.currentViewers = currentViewers; }
+    public Long getBitrateKbps() { return bitrateKbps; }
+    public void setBitrateKbps(Long bitrateKbps) { this.bitrateKbps = bitrateKbps; }
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 }
\ No newline at end of file
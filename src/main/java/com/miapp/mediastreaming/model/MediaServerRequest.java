@@ -1,9 +1,13 @@
 package com.miapp.mediastreaming.model;
 
+import jakarta.validation.constraints.Positive;
+
 public class MediaServerRequest {
     private String serverName;
     private String ipAddress;
     private Integer port; // Opcional, el cliente puede enviarlo o dejarlo null
+    @Positive(message = "La capacidad debe ser mayor que cero")
+    private Integer capacity; // Opcional: peso en el reparto de streams; null mantiene el actual (o el de referencia)
 
     // Constructores
     public MediaServerRequest() {}
@@ -20,4 +24,6 @@ public class MediaServerRequest {
     public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
     public Integer getPort() { return port; }
     public void setPort(Integer port) { this.port = port; }
+    public Integer getCapacity() { return capacity; }
+    public void setCapacity(Integer capacity) { this.capacity = capacity; }
 }
@@ -0,0 +1,13 @@
+package com.miapp.mediastreaming.model;
+
+// Proyección de MediaServer para los listados: se construye directamente en la consulta, sin cargar entidades.
+// No lleva lastSeen, espectadores ni bitrate: cambian en cada heartbeat y el listado se sirve con ETag.
+// Esos valores van en ServerLiveStatus (GET /servers/status, sin caché) y en los eventos STATUS del SSE
+public record MediaServerView(Long id, String name, String ipAddress, int port, String streamKey, Integer capacity,
+                              String status) {
+
+    public static MediaServerView of(MediaServer server) {
+        return new MediaServerView(server.getId(), server.getName(), server.getIpAddress(), server.getPort(),
+                server.getStreamKey(), server.getCapacity(), server.getStatus());
+    }
+}
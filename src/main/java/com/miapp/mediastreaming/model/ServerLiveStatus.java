@@ -0,0 +1,6 @@
+package com.miapp.mediastreaming.model;
+
+import java.time.Instant;
+
+// Métricas en vivo de un servidor: se leen en cada petición, nunca se responden con 304
+public record ServerLiveStatus(Long id, String status, Instant lastSeen, Integer currentViewers, Long bitrateKbps) {}
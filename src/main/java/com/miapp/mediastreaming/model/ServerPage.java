@@ -0,0 +1,6 @@
+package com.miapp.mediastreaming.model;
+
+import java.util.List;
+
+// Página de servidores paginada por cursor: nextCursor es el último id devuelto, o null si no hay más
+public record ServerPage(List<MediaServerView> items, Long nextCursor) {}
@@ -0,0 +1,6 @@
+package com.miapp.mediastreaming.model;
+
+import java.util.List;
+
+// Página de estados en vivo con el mismo cursor que ServerPage
+public record ServerStatusPage(List<ServerLiveStatus> items, Long nextCursor) {}
@@ -0,0 +1,7 @@
+package com.miapp.mediastreaming.model;
+
+// Proyección mínima para resolver a quién pertenece una clave de stream
+public interface StreamKeyOwner {
+    Long getServerId();
+    Long getUserId();
+}
@@ -5,6 +5,11 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import java.util.ArrayList;
@@ -12,9 +17,12 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El nombre de usuario no puede estar vacío")
@@ -25,6 +33,7 @@ public class User {
     @NotBlank(message = "El email no puede estar vacío")
     @Email(message = "El email debe ser válido")
     @Pattern(regexp = ".*@.*\\..+", message = "El email debe contener @ y un dominio válido (ej. .es, .com, .ru)")
+    @NaturalId
     @Column(nullable = false)
     private String email;
 
@@ -36,7 +45,14 @@ public class User {
 
     private String token;
 
+    // Versión del listado de servidores del usuario (ETag de GET /servers). Solo se incrementa con UPDATE
+    // directos, nunca al guardar la entidad, para que un User cargado antes no la haga retroceder
+    @Column(updatable = false)
+    @JsonIgnore
+    private Long serverSetVersion = 0L;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonManagedReference
     private List<MediaServer> mediaServers = new ArrayList<>();
 
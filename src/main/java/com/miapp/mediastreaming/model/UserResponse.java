@@ -0,0 +1,9 @@
+package com.miapp.mediastreaming.model;
+
+// Datos públicos del usuario: nunca el hash de la contraseña, el token ni la colección de servidores
+public record UserResponse(Long id, String username, String email) {
+
+    public static UserResponse of(User user) {
+        return new UserResponse(user.getId(), user.getUsername(), user.getEmail());
+    }
+}
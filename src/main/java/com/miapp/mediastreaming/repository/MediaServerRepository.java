@@ -1,7 +1,32 @@
 package com.miapp.mediastreaming.repository;
 
 import com.miapp.mediastreaming.model.MediaServer;
+import com.miapp.mediastreaming.model.MediaServerView;
+import com.miapp.mediastreaming.model.ServerLiveStatus;
+import com.miapp.mediastreaming.model.StreamKeyOwner;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface MediaServerRepository extends JpaRepository<MediaServer, Long> {
+    Optional<MediaServer> findByIdAndUserId(Long id, Long userId);
+
+    List<MediaServer> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    @Query("select s.id as serverId, s.user.id as userId from MediaServer s where s.streamKey = :streamKey")
+    StreamKeyOwner findOwnerByStreamKey(@Param("streamKey") String streamKey);
+
+    // Paginación por keyset (id > cursor) para no degradar con OFFSET en usuarios con miles de servidores
+    @Query("select new com.miapp.mediastreaming.model.MediaServerView(s.id, s.name, s.ipAddress, s.port, s.streamKey, s.capacity, s.status) "
+            + "from MediaServer s where s.user.id = :userId and s.id > :afterId order by s.id")
+    List<MediaServerView> findPageByUserId(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.miapp.mediastreaming.model.ServerLiveStatus(s.id, s.status, s.lastSeen, s.currentViewers, s.bitrateKbps) "
+            + "from MediaServer s where s.user.id = :userId and s.id > :afterId order by s.id")
+    List<ServerLiveStatus> findStatusPageByUserId(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -1,10 +1,21 @@
 package com.miapp.mediastreaming.repository;
 
 import com.miapp.mediastreaming.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    User findByEmail(String email);
+// findByEmail, clearToken y bumpServerSetVersion están en UserRepositoryCustomImpl para no saltarse la caché de segundo nivel
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     User findByToken(String token);
+
+    // Caché de consultas: se invalida con cualquier escritura en users (p. ej. cada login)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     User findByUsername(String username); // Nuevo método
-}
\ No newline at end of file
+
+    @Query("select coalesce(u.serverSetVersion, 0) from User u where u.id = :id")
+    Long findServerSetVersion(@Param("id") Long id);
+}
@@ -0,0 +1,11 @@
+package com.miapp.mediastreaming.repository;
+
+import com.miapp.mediastreaming.model.User;
+
+public interface UserRepositoryCustom {
+    User findByEmail(String email);
+
+    int clearToken(Long id);
+
+    int bumpServerSetVersion(Long id);
+}
@@ -0,0 +1,57 @@
+package com.miapp.mediastreaming.repository;
+
+import com.miapp.mediastreaming.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+// Operaciones de UserRepository que deben respetar la caché de segundo nivel. Un UPDATE en JPQL invalida
+// la región completa de User, así que se evitan en las escrituras frecuentes
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    // Espacio de consulta propio: los UPDATE de la versión no invalidan ninguna región de entidades
+    static final String SERVER_SET_VERSION_SPACE = "users_server_set_version";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Búsqueda por id natural: email -> id desde la caché y la entidad desde su región, sin ir a la BD
+    @Override
+    @Transactional(readOnly = true)
+    public User findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(email);
+    }
+
+    // Se modifica la entidad para que Hibernate actualice solo la entrada de este usuario en la caché
+    @Override
+    @Transactional
+    public int clearToken(Long id) {
+        User user = entityManager.find(User.class, id);
+        if (user == null) {
+            return 0;
+        }
+        user.setToken(null);
+        return 1;
+    }
+
+    // La versión no se lee nunca desde la entidad (la columna es updatable = false), así que la copia en caché
+    // puede quedar desfasada sin consecuencias.
+    // El flush previo escribe ya los cambios pendientes en media_servers: por su espacio de consulta propio esta
+    // consulta no provoca el auto-flush, y sin él esas filas se bloquearían al confirmar, después de users.
+    // Así todos los escritores (también el flush de estados) bloquean media_servers antes que users.
+    @Override
+    @Transactional
+    public int bumpServerSetVersion(Long id) {
+        entityManager.flush();
+        return entityManager.createNativeQuery(
+                        "update users set server_set_version = coalesce(server_set_version, 0) + 1 where id = :id")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(SERVER_SET_VERSION_SPACE)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,8 @@
+package com.miapp.mediastreaming.service;
+
+// La dirección del servidor no está permitida (local, red interna...): el controlador responde 400
+public class InvalidServerAddressException extends RuntimeException {
+    public InvalidServerAddressException(String message) {
+        super(message);
+    }
+}
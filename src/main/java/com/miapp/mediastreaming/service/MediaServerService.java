@@ -0,0 +1,367 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.BulkItemResult;
+import com.miapp.mediastreaming.model.BulkServerUpdateRequest;
+import com.miapp.mediastreaming.model.MediaServer;
+import com.miapp.mediastreaming.model.MediaServerRequest;
+import com.miapp.mediastreaming.model.MediaServerView;
+import com.miapp.mediastreaming.model.ServerLiveStatus;
+import com.miapp.mediastreaming.model.ServerPage;
+import com.miapp.mediastreaming.model.ServerStatusPage;
+import com.miapp.mediastreaming.model.User;
+import com.miapp.mediastreaming.repository.MediaServerRepository;
+import com.miapp.mediastreaming.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+// Operaciones sobre los servidores de un usuario que tocan solo las filas afectadas, sin cargar User.mediaServers
+@Service
+public class MediaServerService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BULK_ITEMS = 5000;
+    private static final Logger logger = LoggerFactory.getLogger(MediaServerService.class);
+
+    @Autowired
+    private MediaServerRepository mediaServerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ServerStatusRegistry serverStatusRegistry;
+
+    @Autowired
+    private StreamKeyIndex streamKeyIndex;
+
+    @Autowired
+    private ServerEventBroadcaster serverEventBroadcaster;
+
+    @Autowired
+    private StreamPlacement streamPlacement;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ServerAddressPolicy serverAddressPolicy;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.servers.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Transactional
+    public MediaServer register(Long userId, MediaServerRequest request) {
+        checkAddress(request.getIpAddress());
+        MediaServer saved = mediaServerRepository.save(newServer(userRepository.getReferenceById(userId), request));
+        userRepository.bumpServerSetVersion(userId);
+        afterCommit(() -> created(userId, List.of(saved)));
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public ServerPage listServers(Long userId, Long after, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<MediaServerView> items = mediaServerRepository.findPageByUserId(
+                userId, after != null ? after : 0L, PageRequest.of(0, pageSize));
+        Long nextCursor = items.size() == pageSize ? items.get(items.size() - 1).id() : null;
+        return new ServerPage(items, nextCursor);
+    }
+
+    // Lo que aún no se ha volcado a la BD se toma del registro en memoria de esta réplica
+    @Transactional(readOnly = true)
+    public ServerStatusPage listStatuses(Long userId, Long after, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<ServerLiveStatus> stored = mediaServerRepository.findStatusPageByUserId(
+                userId, after != null ? after : 0L, PageRequest.of(0, pageSize));
+        List<ServerLiveStatus> items = new ArrayList<>(stored.size());
+        for (ServerLiveStatus item : stored) {
+            ServerStatusRegistry.ServerStatus live = serverStatusRegistry.get(item.id());
+            items.add(live != null && userId.equals(live.userId())
+                    ? new ServerLiveStatus(item.id(), live.status(), live.lastSeen(), live.viewers(), live.bitrateKbps())
+                    : item);
+        }
+        Long nextCursor = stored.size() == pageSize ? stored.get(stored.size() - 1).id() : null;
+        return new ServerStatusPage(items, nextCursor);
+    }
+
+    // ETag del listado: cambia con cada alta, modificación, baja o paso ONLINE/OFFLINE, que es todo lo que lleva
+    // MediaServerView. Las métricas que cambian en cada heartbeat se sirven aparte (listStatuses), así que un 304
+    // nunca devuelve datos atrasados y la etiqueta puede ser fuerte.
+    // Se lee antes que la página: si algo cambia entre ambas lecturas, el cliente recibe datos nuevos con la
+    // versión antigua y simplemente los vuelve a pedir, nunca al revés
+    @Transactional(readOnly = true)
+    public String serverSetETag(Long userId) {
+        Long version = userRepository.findServerSetVersion(userId);
+        return "\"" + userId + "-" + (version != null ? version : 0L) + "\"";
+    }
+
+    // Devuelve null si el servidor no existe o no pertenece al usuario
+    @Transactional
+    public MediaServer update(Long userId, Long id, MediaServerRequest request) {
+        checkAddress(request.getIpAddress());
+        MediaServer server = mediaServerRepository.findByIdAndUserId(id, userId).orElse(null);
+        if (server == null) {
+            return null;
+        }
+        server.setName(request.getServerName());
+        server.setIpAddress(request.getIpAddress());
+        server.setPort(request.getPort() != null ? request.getPort() : server.getPort());
+        server.setCapacity(request.getCapacity() != null ? request.getCapacity() : server.getCapacity());
+        userRepository.bumpServerSetVersion(userId);
+        afterCommit(() -> updated(userId, List.of(server)));
+        return server;
+    }
+
+    @Transactional
+    public boolean delete(Long userId, Long id) {
+        MediaServer server = mediaServerRepository.findByIdAndUserId(id, userId).orElse(null);
+        if (server == null) {
+            return false;
+        }
+        mediaServerRepository.delete(server);
+        userRepository.bumpServerSetVersion(userId);
+        afterCommit(() -> deleted(userId, List.of(server)));
+        return true;
+    }
+
+    // Alta masiva: cada bloque de bulkChunkSize elementos va en su propia transacción, con INSERT por lotes JDBC
+    // e ids reservados de la secuencia de 50 en 50
+    public List<BulkItemResult> registerAll(Long userId, List<MediaServerRequest> requests) {
+        BulkItemResult[] results = new BulkItemResult[requests.size()];
+        inChunks(results, (from, to) -> {
+            List<MediaServer> created = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                User owner = userRepository.getReferenceById(userId);
+                for (int i = from; i < to; i++) {
+                    MediaServerRequest request = requests.get(i);
+                    String error = validate(request);
+                    if (error != null) {
+                        results[i] = BulkItemResult.error(i, null, BulkItemResult.INVALID, error);
+                        continue;
+                    }
+                    created.add(newServer(owner, request));
+                    positions.add(i);
+                }
+                mediaServerRepository.saveAll(created);
+                bumpIfChanged(userId, created);
+                afterCommit(() -> created(userId, created));
+            });
+            for (int k = 0; k < created.size(); k++) {
+                int i = positions.get(k);
+                results[i] = BulkItemResult.ok(i, created.get(k).getId(), BulkItemResult.CREATED);
+            }
+        });
+        return List.of(results);
+    }
+
+    // Modificación masiva: una consulta por bloque para cargar los servidores del usuario y UPDATE por lotes al confirmar
+    public List<BulkItemResult> updateAll(Long userId, List<BulkServerUpdateRequest> requests) {
+        BulkItemResult[] results = new BulkItemResult[requests.size()];
+        inChunks(results, (from, to) -> {
+            List<MediaServer> updated = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, MediaServer> owned = loadOwned(userId, requests.subList(from, to).stream()
+                        .map(request -> request != null ? request.getId() : null).toList());
+                for (int i = from; i < to; i++) {
+                    BulkServerUpdateRequest request = requests.get(i);
+                    Long id = request != null ? request.getId() : null;
+                    String error = id == null ? "El id del servidor es obligatorio" : validate(request);
+                    if (error != null) {
+                        results[i] = BulkItemResult.error(i, id, BulkItemResult.INVALID, error);
+                        continue;
+                    }
+                    MediaServer server = owned.get(id);
+                    if (server == null) {
+                        results[i] = BulkItemResult.error(i, id, BulkItemResult.NOT_FOUND, "Servidor no encontrado");
+                        continue;
+                    }
+                    server.setName(request.getServerName());
+                    server.setIpAddress(request.getIpAddress());
+                    server.setPort(request.getPort() != null ? request.getPort() : server.getPort());
+                    server.setCapacity(request.getCapacity() != null ? request.getCapacity() : server.getCapacity());
+                    updated.add(server);
+                    positions.add(i);
+                }
+                bumpIfChanged(userId, updated);
+                afterCommit(() -> updated(userId, updated));
+            });
+            for (int k = 0; k < updated.size(); k++) {
+                int i = positions.get(k);
+                results[i] = BulkItemResult.ok(i, updated.get(k).getId(), BulkItemResult.UPDATED);
+            }
+        });
+        return List.of(results);
+    }
+
+    // Borrado masivo: DELETE por lotes de las filas del usuario, sin cargar la colección completa
+    public List<BulkItemResult> deleteAll(Long userId, List<Long> ids) {
+        BulkItemResult[] results = new BulkItemResult[ids.size()];
+        inChunks(results, (from, to) -> {
+            List<MediaServer> deleted = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, MediaServer> owned = loadOwned(userId, ids.subList(from, to));
+                for (int i = from; i < to; i++) {
+                    Long id = ids.get(i);
+                    MediaServer server = id != null ? owned.remove(id) : null;
+                    if (server == null) {
+                        results[i] = id == null
+                                ? BulkItemResult.error(i, null, BulkItemResult.INVALID, "El id del servidor es obligatorio")
+                                : BulkItemResult.error(i, id, BulkItemResult.NOT_FOUND, "Servidor no encontrado");
+                        continue;
+                    }
+                    deleted.add(server);
+                    positions.add(i);
+                }
+                mediaServerRepository.deleteAll(deleted);
+                bumpIfChanged(userId, deleted);
+                afterCommit(() -> deleted(userId, deleted));
+            });
+            for (int k = 0; k < deleted.size(); k++) {
+                int i = positions.get(k);
+                results[i] = BulkItemResult.ok(i, deleted.get(k).getId(), BulkItemResult.DELETED);
+            }
+        });
+        return List.of(results);
+    }
+
+    private interface ChunkAction {
+        void run(int from, int to);
+    }
+
+    // Si un bloque falla, sus elementos sin resultado quedan como FAILED y se sigue con el siguiente.
+    // Con open-in-view el EntityManager de la petición está ligado al hilo y cada transacción lo reutilizaría,
+    // acumulando todos los bloques en él. Se desliga mientras dura la operación: cada bloque abre uno propio que
+    // se cierra al confirmar, y las entidades que ya tuviera cargadas quien llama no se tocan
+    private void inChunks(BulkItemResult[] results, ChunkAction action) {
+        EntityManagerHolder requestScoped =
+                (EntityManagerHolder) TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        try {
+            for (int from = 0; from < results.length; from += bulkChunkSize) {
+                int to = Math.min(results.length, from + bulkChunkSize);
+                try {
+                    action.run(from, to);
+                } catch (RuntimeException e) {
+                    logger.warn("Error en el bloque [{}, {}) de una operación masiva", from, to, e);
+                    for (int i = from; i < to; i++) {
+                        if (results[i] == null) {
+                            results[i] = BulkItemResult.error(i, null, BulkItemResult.FAILED, "No se pudo guardar el bloque");
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (requestScoped != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory, requestScoped);
+            }
+        }
+    }
+
+    private Map<Long, MediaServer> loadOwned(Long userId, List<Long> ids) {
+        List<Long> nonNull = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, MediaServer> owned = new HashMap<>();
+        if (!nonNull.isEmpty()) {
+            for (MediaServer server : mediaServerRepository.findByUserIdAndIdIn(userId, nonNull)) {
+                owned.put(server.getId(), server);
+            }
+        }
+        return owned;
+    }
+
+    private void bumpIfChanged(Long userId, List<MediaServer> changed) {
+        if (!changed.isEmpty()) {
+            userRepository.bumpServerSetVersion(userId);
+        }
+    }
+
+    private String validate(MediaServerRequest request) {
+        if (request == null || request.getServerName() == null || request.getServerName().trim().isEmpty()) {
+            return "El nombre del servidor no puede ser nulo o vacío";
+        }
+        if (request.getIpAddress() == null || request.getIpAddress().trim().isEmpty()) {
+            return "La dirección IP no puede ser nula o vacía";
+        }
+        if (request.getCapacity() != null && request.getCapacity() <= 0) {
+            return "La capacidad debe ser mayor que cero";
+        }
+        return serverAddressPolicy.rejectReason(request.getIpAddress());
+    }
+
+    private void checkAddress(String ipAddress) {
+        String error = serverAddressPolicy.rejectReason(ipAddress);
+        if (error != null) {
+            throw new InvalidServerAddressException(error);
+        }
+    }
+
+    private static MediaServer newServer(User owner, MediaServerRequest request) {
+        MediaServer mediaServer = new MediaServer();
+        mediaServer.setName(request.getServerName());
+        mediaServer.setIpAddress(request.getIpAddress());
+        mediaServer.setPort(request.getPort() != null ? request.getPort() : 8080);
+        mediaServer.setStreamKey(UUID.randomUUID().toString());
+        mediaServer.setCapacity(request.getCapacity());
+        mediaServer.setStatus("OFFLINE");
+        mediaServer.setUser(owner);
+        return mediaServer;
+    }
+
+    // Propagación de los cambios confirmados a los índices en memoria y a los suscriptores SSE.
+    // El anillo de reparto se reconstruye una vez por lote, no por servidor
+    private void created(Long userId, List<MediaServer> servers) {
+        for (MediaServer server : servers) {
+            streamKeyIndex.put(server.getStreamKey(), server.getId(), userId);
+            serverEventBroadcaster.publishServer(userId, ServerEventBroadcaster.CREATED, MediaServerView.of(server));
+        }
+        streamPlacement.serversChanged(userId, servers);
+    }
+
+    private void updated(Long userId, List<MediaServer> servers) {
+        for (MediaServer server : servers) {
+            streamKeyIndex.put(server.getStreamKey(), server.getId(), userId);
+            serverEventBroadcaster.publishServer(userId, ServerEventBroadcaster.UPDATED, MediaServerView.of(server));
+        }
+        streamPlacement.serversChanged(userId, servers);
+    }
+
+    private void deleted(Long userId, List<MediaServer> servers) {
+        for (MediaServer server : servers) {
+            streamKeyIndex.remove(server.getStreamKey());
+            serverStatusRegistry.forget(server.getId());
+            serverEventBroadcaster.publishDeleted(userId, server.getId());
+        }
+        streamPlacement.serversRemoved(userId, servers.stream().map(MediaServer::getId).toList());
+    }
+
+    // Los índices en memoria solo se tocan si la transacción llega a confirmarse
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
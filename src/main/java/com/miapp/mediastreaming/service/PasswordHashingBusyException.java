@@ -0,0 +1,8 @@
+package com.miapp.mediastreaming.service;
+
+// El pool de BCrypt está saturado: el controlador responde 503 con Retry-After
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,136 @@
+package com.miapp.mediastreaming.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Direcciones a las que el backend no se conecta en nombre de un usuario. Sin esto, registrar un servidor en
+// 127.0.0.1:5432 o 169.254.169.254:80 y mirar su estado convertiría el sondeo en un escáner de la red interna.
+// El sondeo lo comprueba tras resolver el nombre (un DNS que cambie de respuesta no lo esquiva); el alta solo
+// puede rechazar los literales y "localhost", sin consultar el DNS en la petición.
+@Component
+public class ServerAddressPolicy {
+
+    public enum Category { LOOPBACK, LINK_LOCAL, SITE_LOCAL, ANY_LOCAL, MULTICAST }
+
+    private record Range(byte[] network, int prefix) {
+        static Range parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            String host = slash < 0 ? cidr : cidr.substring(0, slash);
+            if (!isLiteral(host)) {
+                throw new IllegalArgumentException("Rango de direcciones no válido: " + cidr);
+            }
+            try {
+                byte[] network = InetAddress.getByName(host).getAddress();
+                int prefix = slash < 0 ? network.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+                if (prefix < 0 || prefix > network.length * 8) {
+                    throw new IllegalArgumentException("Prefijo fuera de rango: " + cidr);
+                }
+                return new Range(network, prefix);
+            } catch (UnknownHostException | NumberFormatException e) {
+                throw new IllegalArgumentException("Rango de direcciones no válido: " + cidr, e);
+            }
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int full = prefix / 8;
+            for (int i = 0; i < full; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = prefix % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = (0xff << (8 - rest)) & 0xff;
+            return (address[full] & mask) == (network[full] & mask);
+        }
+    }
+
+    // IPv4 o IPv6 literal: InetAddress los convierte sin consultar el DNS
+    private static final Pattern LITERAL = Pattern.compile("[0-9.]+|.*:.*");
+
+    private final boolean enabled;
+    private final Set<Category> denied;
+    private final List<Range> deniedRanges;
+
+    public ServerAddressPolicy(@Value("${app.servers.address-policy.enabled:true}") boolean enabled,
+                               @Value("${app.servers.address-policy.deny:loopback,link-local,site-local,any-local,multicast}") List<String> deny,
+                               @Value("${app.servers.address-policy.deny-ranges:0.0.0.0/8,100.64.0.0/10,fc00::/7}") List<String> denyRanges) {
+        this.enabled = enabled;
+        this.denied = EnumSet.noneOf(Category.class);
+        for (String name : deny) {
+            if (!name.isBlank()) {
+                denied.add(Category.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+            }
+        }
+        this.deniedRanges = new ArrayList<>();
+        for (String cidr : denyRanges) {
+            if (!cidr.isBlank()) {
+                deniedRanges.add(Range.parse(cidr.trim()));
+            }
+        }
+    }
+
+    // Sin restricciones: para pruebas contra servidores locales
+    public static ServerAddressPolicy allowAll() {
+        return new ServerAddressPolicy(false, List.of(), List.of());
+    }
+
+    static boolean isLiteral(String host) {
+        return LITERAL.matcher(host).matches();
+    }
+
+    public boolean allows(InetAddress address) {
+        if (!enabled) {
+            return true;
+        }
+        if (denied.contains(Category.LOOPBACK) && address.isLoopbackAddress()
+                || denied.contains(Category.LINK_LOCAL) && address.isLinkLocalAddress()
+                || denied.contains(Category.SITE_LOCAL) && address.isSiteLocalAddress()
+                || denied.contains(Category.ANY_LOCAL) && address.isAnyLocalAddress()
+                || denied.contains(Category.MULTICAST) && address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        for (Range range : deniedRanges) {
+            if (range.contains(bytes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Para validar lo que envía el usuario: devuelve el motivo del rechazo o null si se acepta
+    public String rejectReason(String host) {
+        if (!enabled || host == null) {
+            return null;
+        }
+        String trimmed = host.trim().toLowerCase(Locale.ROOT);
+        if (denied.contains(Category.LOOPBACK) && (trimmed.equals("localhost") || trimmed.endsWith(".localhost"))) {
+            return "La dirección del servidor no puede ser local ni de la red interna";
+        }
+        if (!isLiteral(trimmed)) {
+            return null;
+        }
+        try {
+            return allows(InetAddress.getByName(trimmed))
+                    ? null
+                    : "La dirección del servidor no puede ser local ni de la red interna";
+        } catch (UnknownHostException e) {
+            return "La dirección IP no es válida";
+        }
+    }
+}
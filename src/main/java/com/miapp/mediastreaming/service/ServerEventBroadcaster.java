@@ -0,0 +1,401 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.MediaServerView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reparte por SSE los cambios en los servidores de cada usuario (alta, modificación, baja y estado).
+// - Un canal por usuario con historial acotado: al reconectar con Last-Event-ID se reenvía solo lo perdido,
+//   o un evento RESYNC si el historial ya no lo cubre.
+// - Los cambios de un mismo servidor que llegan dentro de la ventana de agrupación se funden en un solo evento.
+// - Cada suscriptor tiene un máximo de eventos pendientes; si no los consume a tiempo se le desconecta.
+// Los envíos van en un pool acotado de hilos de plataforma, nunca en el hilo que publica: un cliente lento solo ocupa
+// uno de esos hilos. No se usan hilos virtuales porque SseEmitter.send es synchronized y una escritura bloqueada
+// dentro del monitor retendría el hilo portador, y con unos pocos clientes atascados se pararían todos los virtuales.
+// Por lo mismo, publicar nunca llama al emitter: el cierre de un suscriptor desbordado también va al pool.
+// Un envío que supera write-timeout da al suscriptor por perdido y el pool recibe un hilo más mientras la escritura
+// siga bloqueada (hasta que Tomcat la corta con su connection-timeout): unos pocos clientes atascados no frenan
+// las entregas de los demás.
+@Service
+public class ServerEventBroadcaster implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ServerEventBroadcaster.class);
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+    public static final String STATUS = "STATUS";
+    public static final String RESYNC = "RESYNC";
+
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long STALLED = Long.MIN_VALUE + 1;
+
+    public record ServerEvent(long id, String type, Long serverId, MediaServerView server,
+                              ServerStatusRegistry.ServerStatus status) {}
+
+    private static final class Channel {
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<ServerEvent> history = new ArrayDeque<>();
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        // Primer id a partir del cual el historial está completo
+        long coveredFrom;
+        boolean removed;
+        volatile long lastActivity = System.nanoTime();
+
+        Channel(long coveredFrom) {
+            this.coveredFrom = coveredFrom;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final Channel channel;
+        final ReentrantLock lock = new ReentrantLock();
+        // Clave servidor:tipo -> último evento; los anteriores del mismo servidor se descartan
+        final LinkedHashMap<String, ServerEvent> pending = new LinkedHashMap<>();
+        boolean draining;
+        boolean ping;
+        volatile boolean closed;
+        // Inicio del envío en curso (System.nanoTime), IDLE si no hay ninguno o STALLED si superó el plazo
+        final AtomicLong sendStarted = new AtomicLong(IDLE);
+
+        Subscriber(SseEmitter emitter, Channel channel) {
+            this.emitter = emitter;
+            this.channel = channel;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Channel> channels = new ConcurrentHashMap<>();
+    // Arranca en el reloj para que los ids sigan creciendo tras un reinicio y un Last-Event-ID antiguo no se confunda
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("sse-timer").daemon(true).factory());
+    private final ThreadPoolExecutor senders;
+    private final int senderThreads;
+    private final int maxStalledSenders;
+    // Envíos que superaron el plazo y siguen bloqueados; solo se modifica en adjustSenders
+    private int stalledSenders;
+    private final long coalesceMillis;
+    private final int maxPending;
+    private final int historySize;
+    private final long emitterTimeoutMillis;
+    private final long channelRetentionNanos;
+    private final long writeTimeoutNanos;
+    private final Counter dropped;
+    private final Counter stalled;
+
+    public ServerEventBroadcaster(MeterRegistry meterRegistry,
+                                  @Value("${app.servers.events.coalesce-window:250ms}") Duration coalesceWindow,
+                                  @Value("${app.servers.events.max-pending:1000}") int maxPending,
+                                  @Value("${app.servers.events.history-size:256}") int historySize,
+                                  @Value("${app.servers.events.emitter-timeout:30m}") Duration emitterTimeout,
+                                  @Value("${app.servers.events.ping-interval:20s}") Duration pingInterval,
+                                  @Value("${app.servers.events.channel-retention:5m}") Duration channelRetention,
+                                  @Value("${app.servers.events.sender-threads:16}") int senderThreads,
+                                  @Value("${app.servers.events.write-timeout:10s}") Duration writeTimeout,
+                                  @Value("${app.servers.events.max-stalled-senders:64}") int maxStalledSenders) {
+        this.coalesceMillis = coalesceWindow.toMillis();
+        this.maxPending = maxPending;
+        this.historySize = historySize;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.channelRetentionNanos = channelRetention.toNanos();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.senderThreads = senderThreads;
+        this.maxStalledSenders = maxStalledSenders;
+        this.dropped = Counter.builder("servers.events.dropped.subscribers").register(meterRegistry);
+        this.stalled = Counter.builder("servers.events.stalled.sends").register(meterRegistry);
+        // Cola sin límite pero acotada en la práctica: como mucho un vaciado y un cierre pendientes por suscriptor
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), Thread.ofPlatform().name("sse-send-", 0).daemon(true).factory());
+        new ExecutorServiceMetrics(pool, "sse.send", Tags.empty()).bindTo(meterRegistry);
+        this.senders = pool;
+        Gauge.builder("servers.events.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+        long ping = pingInterval.toMillis();
+        timer.scheduleWithFixedDelay(this::pingAndSweep, ping, ping, TimeUnit.MILLISECONDS);
+        long check = Math.max(100, writeTimeout.toMillis() / 4);
+        timer.scheduleWithFixedDelay(this::checkStalledSends, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = createEmitter(emitterTimeoutMillis);
+        Channel channel;
+        while (true) {
+            channel = channels.computeIfAbsent(userId, id -> new Channel(sequence.get()));
+            channel.lock.lock();
+            if (!channel.removed) {
+                break;
+            }
+            // La limpieza lo acaba de retirar: se crea otro
+            channel.lock.unlock();
+        }
+        Subscriber subscriber = new Subscriber(emitter, channel);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        try {
+            // Registro y reenvío bajo el mismo lock: ningún evento se pierde ni se duplica entre ambos
+            channel.subscribers.add(subscriber);
+            subscriberCount.incrementAndGet();
+            channel.lastActivity = System.nanoTime();
+            if (lastEventId != null) {
+                if (lastEventId < channel.coveredFrom) {
+                    enqueue(subscriber, new ServerEvent(sequence.get(), RESYNC, null, null, null));
+                } else {
+                    for (ServerEvent event : channel.history) {
+                        if (event.id() > lastEventId) {
+                            enqueue(subscriber, event);
+                        }
+                    }
+                }
+            }
+        } finally {
+            channel.lock.unlock();
+        }
+        return emitter;
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    public void publishServer(Long userId, String type, MediaServerView server) {
+        publish(userId, type, server.id(), server, null);
+    }
+
+    public void publishDeleted(Long userId, Long serverId) {
+        publish(userId, DELETED, serverId, null, null);
+    }
+
+    public void publishStatus(Long userId, ServerStatusRegistry.ServerStatus status) {
+        publish(userId, STATUS, status.serverId(), null, status);
+    }
+
+    private void publish(Long userId, String type, Long serverId, MediaServerView server,
+                         ServerStatusRegistry.ServerStatus status) {
+        if (userId == null) {
+            return;
+        }
+        // Sin canal nadie escucha ni puede reanudar: no se guarda nada
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return;
+        }
+        channel.lock.lock();
+        try {
+            ServerEvent event = new ServerEvent(sequence.incrementAndGet(), type, serverId, server, status);
+            channel.history.addLast(event);
+            if (channel.history.size() > historySize) {
+                channel.coveredFrom = channel.history.removeFirst().id();
+            }
+            channel.lastActivity = System.nanoTime();
+            for (Subscriber subscriber : channel.subscribers) {
+                enqueue(subscriber, event);
+            }
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, ServerEvent event) {
+        if (subscriber.closed) {
+            return;
+        }
+        boolean overflow;
+        subscriber.lock.lock();
+        try {
+            String key = event.serverId() + (STATUS.equals(event.type()) ? ":s" : ":e");
+            overflow = subscriber.pending.size() >= maxPending && !subscriber.pending.containsKey(key);
+            if (!overflow) {
+                subscriber.pending.remove(key); // Se reinserta al final para respetar el orden del último cambio
+                subscriber.pending.put(key, event);
+                scheduleDrain(subscriber, coalesceMillis);
+            }
+        } finally {
+            subscriber.lock.unlock();
+        }
+        if (overflow) {
+            logger.debug("Suscriptor SSE desconectado por no consumir eventos a tiempo");
+            dropped.increment();
+            remove(subscriber);
+            // complete() espera al monitor del emitter, que retiene un send bloqueado: fuera del hilo que publica
+            try {
+                senders.execute(subscriber.emitter::complete);
+            } catch (RejectedExecutionException e) {
+                // Apagando: destroy() cierra los emitters que quedan
+            }
+        }
+    }
+
+    // Debe llamarse con subscriber.lock tomado; como mucho un envío en curso por suscriptor
+    private void scheduleDrain(Subscriber subscriber, long delayMillis) {
+        if (!subscriber.draining) {
+            subscriber.draining = true;
+            timer.schedule(() -> {
+                try {
+                    senders.execute(() -> drain(subscriber));
+                } catch (RejectedExecutionException e) {
+                    // Apagando
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (!subscriber.closed) {
+            List<ServerEvent> batch;
+            boolean ping;
+            subscriber.lock.lock();
+            try {
+                batch = new ArrayList<>(subscriber.pending.values());
+                subscriber.pending.clear();
+                ping = subscriber.ping;
+                subscriber.ping = false;
+                if (batch.isEmpty() && !ping) {
+                    subscriber.draining = false;
+                    return;
+                }
+            } finally {
+                subscriber.lock.unlock();
+            }
+            try {
+                for (ServerEvent event : batch) {
+                    if (!send(subscriber, SseEmitter.event()
+                            .id(Long.toString(event.id()))
+                            .name(event.type())
+                            .data(event, MediaType.APPLICATION_JSON))) {
+                        subscriber.emitter.complete();
+                        return;
+                    }
+                }
+                if (ping && !send(subscriber, SseEmitter.event().comment("ping"))) {
+                    subscriber.emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+                return;
+            }
+        }
+    }
+
+    // Devuelve false si el envío llegó a terminar pero después del plazo: el suscriptor ya se dio por perdido
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStarted.set(System.nanoTime());
+        boolean late = false;
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            if (subscriber.sendStarted.getAndSet(IDLE) == STALLED) {
+                late = true;
+                adjustSenders(-1);
+            }
+        }
+        return !late;
+    }
+
+    // El hilo atascado sigue dentro de send hasta que la escritura falla: se retira al suscriptor (deja de recibir
+    // eventos) y se compensa el pool con otro hilo, como mucho max-stalled-senders a la vez
+    private void checkStalledSends() {
+        long now = System.nanoTime();
+        channels.values().forEach(channel -> {
+            for (Subscriber subscriber : channel.subscribers) {
+                long started = subscriber.sendStarted.get();
+                if (started != IDLE && started != STALLED && now - started > writeTimeoutNanos
+                        && subscriber.sendStarted.compareAndSet(started, STALLED)) {
+                    logger.debug("Suscriptor SSE desconectado: un envío superó el plazo de escritura");
+                    stalled.increment();
+                    dropped.increment();
+                    remove(subscriber);
+                    adjustSenders(1);
+                }
+            }
+        });
+    }
+
+    // Al crecer se sube antes el máximo y al decrecer antes el núcleo: el núcleo nunca puede superar al máximo
+    private synchronized void adjustSenders(int delta) {
+        stalledSenders += delta;
+        int size = senderThreads + Math.min(stalledSenders, maxStalledSenders);
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else if (size < senders.getCorePoolSize()) {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    // Comentario periódico para detectar clientes caídos, y limpieza de canales sin suscriptores
+    private void pingAndSweep() {
+        long now = System.nanoTime();
+        channels.forEach((userId, channel) -> {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.lock.lock();
+                try {
+                    subscriber.ping = true;
+                    scheduleDrain(subscriber, 0);
+                } finally {
+                    subscriber.lock.unlock();
+                }
+            }
+            if (channel.subscribers.isEmpty() && now - channel.lastActivity > channelRetentionNanos) {
+                channel.lock.lock();
+                try {
+                    if (channel.subscribers.isEmpty()) {
+                        channel.removed = true;
+                        channels.remove(userId, channel);
+                    }
+                } finally {
+                    channel.lock.unlock();
+                }
+            }
+        });
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscriber.closed = true;
+        if (subscriber.channel.subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+        subscriber.channel.lastActivity = System.nanoTime();
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+        senders.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.miapp.mediastreaming.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Sondea periódicamente ipAddress:port de todos los servidores registrados y vuelca el resultado
+// en ServerStatusRegistry, que lo persiste por lotes junto con los heartbeats.
+// Usa su propio hilo para no ocupar el planificador compartido de @Scheduled durante un ciclo largo.
+@Service
+public class ServerHealthProber implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ServerHealthProber.class);
+
+    private static final String TARGETS_SQL = "select id, ip_address, port, user_id from media_servers";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ServerStatusRegistry serverStatusRegistry;
+    private final TcpConnectProber prober;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final double jitter;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("health-prober").daemon(true).factory());
+    private final Timer cycleTimer;
+    private final Counter reachable;
+    private final Counter unreachable;
+
+    public ServerHealthProber(JdbcTemplate jdbcTemplate,
+                              ServerStatusRegistry serverStatusRegistry,
+                              ServerAddressPolicy addressPolicy,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.servers.probe.enabled:true}") boolean enabled,
+                              @Value("${app.servers.probe.interval:15s}") Duration interval,
+                              @Value("${app.servers.probe.jitter:0.2}") double jitter,
+                              @Value("${app.servers.probe.timeout:2s}") Duration timeout,
+                              @Value("${app.servers.probe.max-concurrent:1024}") int maxConcurrent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.serverStatusRegistry = serverStatusRegistry;
+        this.prober = new TcpConnectProber(addressPolicy, maxConcurrent, timeout.toMillis());
+        this.enabled = enabled;
+        this.intervalMillis = interval.toMillis();
+        this.jitter = jitter;
+        this.cycleTimer = Timer.builder("servers.probe.cycle").register(meterRegistry);
+        this.reachable = Counter.builder("servers.probe").tag("result", "reachable").register(meterRegistry);
+        this.unreachable = Counter.builder("servers.probe").tag("result", "unreachable").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduleNext();
+            logger.info("Sondeo de servidores activado cada {} ms", intervalMillis);
+        }
+    }
+
+    // Intervalo con jitter para que varias réplicas no sondeen todas a la vez
+    private void scheduleNext() {
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        scheduler.schedule(this::runCycle, Math.round(intervalMillis * factor), TimeUnit.MILLISECONDS);
+    }
+
+    private void runCycle() {
+        try {
+            cycleTimer.record(this::probeAll);
+        } catch (Exception e) {
+            logger.error("Error en el ciclo de sondeo de servidores", e);
+        } finally {
+            if (!scheduler.isShutdown()) {
+                scheduleNext();
+            }
+        }
+    }
+
+    private void probeAll() {
+        List<TcpConnectProber.Target> targets = new ArrayList<>();
+        Map<Long, Long> owners = new HashMap<>();
+        jdbcTemplate.query(TARGETS_SQL, rs -> {
+            targets.add(new TcpConnectProber.Target(rs.getLong(1), rs.getString(2), rs.getInt(3)));
+            owners.put(rs.getLong(1), rs.getLong(4));
+        });
+        Map<Long, Boolean> results;
+        try {
+            results = prober.probe(targets);
+        } catch (java.io.IOException e) {
+            logger.warn("No se pudo abrir el selector para el sondeo", e);
+            return;
+        }
+        int up = 0;
+        for (Map.Entry<Long, Boolean> result : results.entrySet()) {
+            boolean ok = result.getValue();
+            serverStatusRegistry.recordProbe(result.getKey(), owners.get(result.getKey()), ok);
+            if (ok) {
+                up++;
+            }
+        }
+        reachable.increment(up);
+        unreachable.increment(results.size() - up);
+        logger.debug("Sondeo completado: {} de {} servidores alcanzables", up, results.size());
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        prober.close();
+    }
+}
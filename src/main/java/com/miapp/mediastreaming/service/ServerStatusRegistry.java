@@ -0,0 +1,294 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.MediaServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tabla en memoria con el estado de los servidores que envían heartbeats.
+// Los cambios se acumulan y se escriben en media_servers por lotes JDBC en cada flush programado,
+// de modo que varios heartbeats del mismo servidor entre dos flush se convierten en un solo UPDATE.
+// La capacidad que anuncian los heartbeats se guarda también (reported_capacity) y se pasa a StreamPlacement.
+@Service
+public class ServerStatusRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ServerStatusRegistry.class);
+
+    public static final String ONLINE = "ONLINE";
+    public static final String OFFLINE = "OFFLINE";
+
+    private static final String UPDATE_SQL =
+            "update media_servers set status = ?, last_seen = ?, current_viewers = ?, bitrate_kbps = ?,"
+                    + " reported_capacity = coalesce(?, reported_capacity) where id = ?";
+    // Cubre servidores que nunca llegaron a esta réplica o que dejaron de enviar antes de un reinicio
+    private static final String EXPIRED_SQL =
+            "select id, user_id from media_servers where status = 'ONLINE' and (last_seen is null or last_seen < ?) order by id";
+    private static final String EXPIRE_SQL =
+            "update media_servers set status = 'OFFLINE' where id = ? and status = 'ONLINE' and (last_seen is null or last_seen < ?)";
+    // Los cambios ONLINE/OFFLINE invalidan el ETag del listado de los dueños, en la misma transacción;
+    // lastSeen, espectadores y bitrate no forman parte del listado (ver MediaServerService.serverSetETag)
+    private static final String BUMP_VERSION_SQL =
+            "update users set server_set_version = coalesce(server_set_version, 0) + 1 where id = ?";
+
+    // capacity: la última anunciada en un heartbeat, o null si este servidor no la ha enviado desde el arranque
+    public record ServerStatus(Long serverId, Long userId, String status, Instant lastSeen, Integer viewers, Long bitrateKbps,
+                               Integer capacity) {
+
+        // Cambio visible para los clientes (lastSeen avanza en cada heartbeat y no cuenta)
+        boolean differsFrom(ServerStatus other) {
+            return other == null || !status.equals(other.status)
+                    || !Objects.equals(viewers, other.viewers) || !Objects.equals(bitrateKbps, other.bitrateKbps);
+        }
+    }
+
+    private final ConcurrentHashMap<Long, ServerStatus> statuses = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Pendientes cuyo status cambió desde el último flush: solo estos cambian la versión del listado
+    private final Set<Long> transitioned = ConcurrentHashMap.newKeySet();
+    private final StreamKeyIndex streamKeyIndex;
+    private final ServerEventBroadcaster serverEventBroadcaster;
+    private final StreamPlacement streamPlacement;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Duration timeout;
+    private final int batchSize;
+    private final Counter heartbeats;
+    private final Timer flushTimer;
+
+    public ServerStatusRegistry(StreamKeyIndex streamKeyIndex,
+                                ServerEventBroadcaster serverEventBroadcaster,
+                                StreamPlacement streamPlacement,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                EntityManagerFactory entityManagerFactory,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.servers.status.timeout:30s}") Duration timeout,
+                                @Value("${app.servers.status.batch-size:500}") int batchSize) {
+        this.streamKeyIndex = streamKeyIndex;
+        this.serverEventBroadcaster = serverEventBroadcaster;
+        this.streamPlacement = streamPlacement;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+        this.heartbeats = Counter.builder("servers.heartbeats").register(meterRegistry);
+        this.flushTimer = Timer.builder("servers.status.flush").register(meterRegistry);
+        Gauge.builder("servers.status.pending", dirty, Set::size).register(meterRegistry);
+    }
+
+    // Devuelve false si la clave de stream no corresponde a ningún servidor
+    public boolean heartbeat(String streamKey, String status, Integer viewers, Long bitrateKbps, Integer capacity) {
+        StreamKeyIndex.Owner owner = streamKeyIndex.lookup(streamKey);
+        if (owner == null) {
+            return false;
+        }
+        Long serverId = owner.serverId();
+        heartbeats.increment();
+        String newStatus = OFFLINE.equalsIgnoreCase(status) ? OFFLINE : ONLINE;
+        Instant now = Instant.now();
+        ServerStatus[] previous = new ServerStatus[1];
+        // Un heartbeat sin capacidad conserva la última anunciada
+        ServerStatus updated = statuses.compute(serverId, (id, current) -> {
+            previous[0] = current;
+            return new ServerStatus(id, owner.userId(), newStatus, now, viewers, bitrateKbps,
+                    capacity != null ? capacity : current != null ? current.capacity() : null);
+        });
+        markTransition(previous[0], updated);
+        dirty.add(serverId);
+        if (updated.differsFrom(previous[0])) {
+            serverEventBroadcaster.publishStatus(owner.userId(), updated);
+        }
+        if (capacity != null) {
+            streamPlacement.capacityReported(owner.userId(), serverId, capacity);
+        }
+        return true;
+    }
+
+    // Resultado del sondeo TCP: alcanzable cuenta como señal de vida, inalcanzable lo deja OFFLINE.
+    // Gana siempre la señal más reciente, venga de un heartbeat o del sondeo. Un servidor que sigue
+    // inalcanzable no genera evento ni escritura: su OFFLINE ya está en memoria y, salvo fallo, en la BD.
+    public void recordProbe(Long serverId, Long userId, boolean reachable) {
+        Instant now = Instant.now();
+        ServerStatus[] previous = new ServerStatus[1];
+        ServerStatus updated = statuses.compute(serverId, (id, current) -> {
+            previous[0] = current;
+            return reachable
+                    ? new ServerStatus(id, userId, ONLINE, now, current != null ? current.viewers() : null,
+                            current != null ? current.bitrateKbps() : null, current != null ? current.capacity() : null)
+                    : new ServerStatus(id, userId, OFFLINE, current != null ? current.lastSeen() : now, 0, 0L,
+                            current != null ? current.capacity() : null);
+        });
+        if (updated.differsFrom(previous[0])) {
+            markTransition(previous[0], updated);
+            dirty.add(serverId);
+            serverEventBroadcaster.publishStatus(userId, updated);
+        } else if (reachable) {
+            // lastSeen avanza: la BD lo necesita para expirar servidores tras un reinicio o en otra réplica
+            dirty.add(serverId);
+        }
+    }
+
+    // Se marca antes que dirty para que un flush que vea el servidor pendiente vea también el cambio
+    private void markTransition(ServerStatus previous, ServerStatus updated) {
+        if (previous == null || !previous.status().equals(updated.status())) {
+            transitioned.add(updated.serverId());
+        }
+    }
+
+    public ServerStatus get(Long serverId) {
+        return statuses.get(serverId);
+    }
+
+    // Al borrar un servidor se descarta su estado
+    public void forget(Long serverId) {
+        statuses.remove(serverId);
+        dirty.remove(serverId);
+        transitioned.remove(serverId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.servers.status.flush-interval:PT5S}")
+    public void flush() {
+        flushTimer.record(() -> {
+            Instant cutoff = Instant.now().minus(timeout);
+            expire(cutoff);
+            int written = writeDirty();
+            int expired = expireStale(Timestamp.from(cutoff));
+            if (written > 0 || expired > 0) {
+                logger.debug("Flush de estado: {} servidores actualizados, {} expirados en BD", written, expired);
+            }
+        });
+    }
+
+    // Los servidores sin heartbeat reciente pasan a OFFLINE
+    private void expire(Instant cutoff) {
+        for (ServerStatus current : statuses.values()) {
+            if (ONLINE.equals(current.status()) && current.lastSeen().isBefore(cutoff)) {
+                ServerStatus offline = new ServerStatus(current.serverId(), current.userId(), OFFLINE, current.lastSeen(),
+                        0, 0L, current.capacity());
+                if (statuses.replace(current.serverId(), current, offline)) {
+                    transitioned.add(current.serverId());
+                    dirty.add(current.serverId());
+                    serverEventBroadcaster.publishStatus(current.userId(), offline);
+                }
+            }
+        }
+    }
+
+    // Igual que writeDirty: primero las filas de media_servers y después las versiones de sus dueños
+    private int expireStale(Timestamp cutoff) {
+        List<Object[]> rows = new ArrayList<>();
+        List<Long> serverIds = new ArrayList<>();
+        Set<Long> owners = new TreeSet<>();
+        jdbcTemplate.query(EXPIRED_SQL, rs -> {
+            rows.add(new Object[] {rs.getLong(1), cutoff});
+            serverIds.add(rs.getLong(1));
+            owners.add(rs.getLong(2));
+        }, cutoff);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> versions = owners.stream().map(userId -> new Object[] {userId}).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(EXPIRE_SQL, rows);
+            jdbcTemplate.batchUpdate(BUMP_VERSION_SQL, versions);
+        });
+        evictCached(serverIds);
+        return rows.size();
+    }
+
+    private int writeDirty() {
+        List<Object[]> batch = new ArrayList<>(Math.min(dirty.size(), batchSize));
+        Set<Long> owners = new TreeSet<>();
+        List<Long> changed = new ArrayList<>();
+        int written = 0;
+        Iterator<Long> it = dirty.iterator();
+        while (it.hasNext()) {
+            Long serverId = it.next();
+            // Se quita de pendientes antes de leer el estado: un heartbeat posterior lo vuelve a marcar
+            it.remove();
+            ServerStatus status = statuses.get(serverId);
+            if (status == null) {
+                continue;
+            }
+            batch.add(new Object[] {status.status(), Timestamp.from(status.lastSeen()),
+                    status.viewers(), status.bitrateKbps(), status.capacity(), serverId});
+            if (transitioned.remove(serverId)) {
+                changed.add(serverId);
+                if (status.userId() != null) {
+                    owners.add(status.userId());
+                }
+            }
+            if (batch.size() == batchSize) {
+                written += executeBatch(batch, owners, changed);
+            }
+        }
+        // Los OFFLINE se quedan en memoria (como mucho uno por servidor; forget() los quita al borrarlo): sin ellos el
+        // siguiente sondeo fallido parecería un cambio y volvería a escribir y notificar el mismo estado cada ciclo
+        written += executeBatch(batch, owners, changed);
+        return written;
+    }
+
+    // Estas escrituras no pasan por Hibernate: la copia en la caché de segundo nivel se descarta tras confirmar
+    private void evictCached(List<Long> serverIds) {
+        Cache cache = entityManagerFactory.getCache();
+        for (Long serverId : serverIds) {
+            cache.evict(MediaServer.class, serverId);
+        }
+    }
+
+    private int executeBatch(List<Object[]> batch, Set<Long> owners, List<Long> changed) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = batch.size();
+        // Filas en orden de id para que dos flush o un flush y una operación masiva no se bloqueen en cruz
+        batch.sort(Comparator.comparing(row -> (Long) row[5]));
+        List<Object[]> versions = owners.stream().map(userId -> new Object[] {userId}).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+                if (!versions.isEmpty()) {
+                    jdbcTemplate.batchUpdate(BUMP_VERSION_SQL, versions);
+                }
+            });
+            evictCached(batch.stream().map(row -> (Long) row[5]).toList());
+        } catch (DataAccessException | TransactionException e) {
+            // Se reintentan en el siguiente flush, con sus cambios de status
+            transitioned.addAll(changed);
+            for (Object[] row : batch) {
+                dirty.add((Long) row[5]);
+            }
+            logger.warn("Error al escribir el estado de {} servidores, se reintentará", size, e);
+            size = 0;
+        }
+        batch.clear();
+        owners.clear();
+        changed.clear();
+        return size;
+    }
+}
@@ -0,0 +1,358 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.StreamKeyOwner;
+import com.miapp.mediastreaming.repository.MediaServerRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+// Índice en memoria clave de stream -> (id de servidor, id de propietario) para autorizar publicaciones sin ir a la BD.
+// Las claves son UUID y se guardan como dos long en una tabla de direccionamiento abierto (sondeo lineal):
+// unos 32 bytes por hueco frente a los cientos de un HashMap<String, ...>, sin objetos por entrada.
+// Las lecturas son optimistas (StampedLock) y no bloquean; las escrituras son pocas y van con lock exclusivo.
+// Las claves que tampoco están en la BD se recuerdan un rato (negative-ttl) para que repetir una clave inventada
+// no cueste una consulta cada vez.
+@Service
+public class StreamKeyIndex {
+    private static final Logger logger = LoggerFactory.getLogger(StreamKeyIndex.class);
+
+    private static final String LOAD_SQL = "select id, user_id, stream_key from media_servers where stream_key is not null";
+    private static final int MIN_CAPACITY = 1024;
+    private static final double MAX_LOAD = 0.7;
+    private static final int MAX_MISSES = 10_000;
+
+    public record Owner(long serverId, long userId) {}
+
+    // Todos los arrays se publican juntos: un lector optimista nunca mezcla tablas de distinto tamaño
+    private static final class Table {
+        final long[] msb;
+        final long[] lsb;
+        final long[] serverIds; // 0 = hueco libre
+        final long[] userIds;
+        final int mask;
+        int size;
+
+        Table(int capacity) {
+            msb = new long[capacity];
+            lsb = new long[capacity];
+            serverIds = new long[capacity];
+            userIds = new long[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private record PendingOp(long msb, long lsb, long serverId, long userId) {}
+
+    private final StampedLock lock = new StampedLock();
+    private final JdbcTemplate jdbcTemplate;
+    private final MediaServerRepository mediaServerRepository;
+    private final boolean missFallback;
+    private final long negativeTtlNanos;
+    // Clave -> instante (nanoTime) hasta el que se da por inexistente sin consultar la BD
+    private final ConcurrentHashMap<UUID, Long> misses = new ConcurrentHashMap<>();
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile boolean loaded;
+    // Cambios recibidos mientras se reconstruye la tabla; se reaplican sobre la nueva
+    private List<PendingOp> pendingOps;
+    // Bajas aplicadas (bajo el lock): una carga desde la BD que se cruzó con alguna no se guarda en la tabla
+    private long removals;
+
+    public StreamKeyIndex(JdbcTemplate jdbcTemplate,
+                          MediaServerRepository mediaServerRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.ingest.index.miss-fallback:true}") boolean missFallback,
+                          @Value("${app.ingest.index.negative-ttl:10s}") Duration negativeTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mediaServerRepository = mediaServerRepository;
+        this.missFallback = missFallback;
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        Gauge.builder("ingest.stream.keys", this, StreamKeyIndex::size).register(meterRegistry);
+    }
+
+    public Owner lookup(String streamKey) {
+        UUID key = parse(streamKey);
+        if (key == null) {
+            return null;
+        }
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        Owner owner = find(msb, lsb);
+        // Con varias réplicas, una clave creada en otra puede no estar aún aquí: se consulta la BD solo en el fallo
+        if (owner == null && (missFallback || !loaded) && !recentMiss(key)) {
+            owner = loadOne(streamKey, msb, lsb);
+            if (owner == null) {
+                rememberMiss(key);
+            }
+        }
+        return owner;
+    }
+
+    public void put(String streamKey, long serverId, long userId) {
+        UUID key = parse(streamKey);
+        if (key != null) {
+            misses.remove(key);
+            write(key.getMostSignificantBits(), key.getLeastSignificantBits(), serverId, userId);
+        }
+    }
+
+    public void remove(String streamKey) {
+        UUID key = parse(streamKey);
+        if (key != null) {
+            write(key.getMostSignificantBits(), key.getLeastSignificantBits(), 0, 0);
+        }
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+        loaded = true;
+    }
+
+    // Resincronización periódica: recoge altas y bajas hechas por otras réplicas. El intervalo es lo que puede
+    // tardar en dejar de autorizarse aquí una clave borrada en otra réplica
+    @Scheduled(fixedDelayString = "${app.ingest.index.resync-interval:PT1M}", initialDelayString = "${app.ingest.index.resync-interval:PT1M}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        long writeStamp = lock.writeLock();
+        try {
+            pendingOps = new ArrayList<>();
+        } finally {
+            lock.unlockWrite(writeStamp);
+        }
+        Table fresh = new Table(MIN_CAPACITY);
+        Table[] holder = {fresh};
+        try {
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                UUID key = parse(rs.getString(3));
+                if (key != null) {
+                    holder[0] = insert(holder[0], key.getMostSignificantBits(), key.getLeastSignificantBits(),
+                            rs.getLong(1), rs.getLong(2));
+                }
+            });
+        } catch (RuntimeException e) {
+            writeStamp = lock.writeLock();
+            pendingOps = null;
+            lock.unlockWrite(writeStamp);
+            throw e;
+        }
+        writeStamp = lock.writeLock();
+        try {
+            Table rebuilt = holder[0];
+            for (PendingOp op : pendingOps) {
+                rebuilt = op.serverId() != 0
+                        ? insert(rebuilt, op.msb(), op.lsb(), op.serverId(), op.userId())
+                        : delete(rebuilt, op.msb(), op.lsb());
+            }
+            pendingOps = null;
+            table = rebuilt;
+        } finally {
+            lock.unlockWrite(writeStamp);
+        }
+        // Solo la carga inicial en INFO: la resincronización corre cada minuto
+        if (!loaded) {
+            logger.info("Índice de claves de stream cargado: {} claves en {} ms",
+                    table.size, (System.nanoTime() - start) / 1_000_000);
+        } else {
+            logger.debug("Índice de claves de stream resincronizado: {} claves en {} ms",
+                    table.size, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private Owner find(long msb, long lsb) {
+        long stamp = lock.tryOptimisticRead();
+        Owner owner = probe(table, msb, lsb);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                owner = probe(table, msb, lsb);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return owner;
+    }
+
+    private static Owner probe(Table t, long msb, long lsb) {
+        int i = slot(msb, lsb, t.mask);
+        for (int n = 0; n <= t.mask; n++) {
+            long serverId = t.serverIds[i];
+            if (serverId == 0) {
+                return null;
+            }
+            if (t.msb[i] == msb && t.lsb[i] == lsb) {
+                return new Owner(serverId, t.userIds[i]);
+            }
+            i = (i + 1) & t.mask;
+        }
+        return null;
+    }
+
+    private boolean recentMiss(UUID key) {
+        Long until = misses.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        misses.remove(key, until);
+        return false;
+    }
+
+    // Acotado: si se llena se vacía entero, como mucho cuesta una consulta más por clave
+    private void rememberMiss(UUID key) {
+        if (negativeTtlNanos <= 0) {
+            return;
+        }
+        if (misses.size() >= MAX_MISSES) {
+            misses.clear();
+        }
+        misses.put(key, System.nanoTime() + negativeTtlNanos);
+    }
+
+    // Si se borró alguna clave mientras se leía la BD, la fila leída puede ser justo la borrada: se responde con
+    // ella (la lectura fue anterior al borrado) pero no se guarda, o seguiría autorizando hasta la resincronización
+    private Owner loadOne(String streamKey, long msb, long lsb) {
+        long removalsBefore = removalCount();
+        StreamKeyOwner server = mediaServerRepository.findOwnerByStreamKey(streamKey);
+        if (server == null) {
+            return null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (removals == removalsBefore) {
+                apply(msb, lsb, server.getServerId(), server.getUserId());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return new Owner(server.getServerId(), server.getUserId());
+    }
+
+    private long removalCount() {
+        long stamp = lock.readLock();
+        try {
+            return removals;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void write(long msb, long lsb, long serverId, long userId) {
+        long stamp = lock.writeLock();
+        try {
+            if (serverId == 0) {
+                removals++;
+            }
+            apply(msb, lsb, serverId, userId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Debe llamarse con el lock de escritura tomado
+    private void apply(long msb, long lsb, long serverId, long userId) {
+        table = serverId != 0 ? insert(table, msb, lsb, serverId, userId) : delete(table, msb, lsb);
+        if (pendingOps != null) {
+            pendingOps.add(new PendingOp(msb, lsb, serverId, userId));
+        }
+    }
+
+    // Devuelve la tabla donde quedó la entrada (otra distinta si hubo que crecer)
+    private static Table insert(Table t, long msb, long lsb, long serverId, long userId) {
+        if (t.size + 1 > (t.mask + 1) * MAX_LOAD) {
+            t = resize(t);
+        }
+        int i = slot(msb, lsb, t.mask);
+        while (t.serverIds[i] != 0) {
+            if (t.msb[i] == msb && t.lsb[i] == lsb) {
+                t.serverIds[i] = serverId;
+                t.userIds[i] = userId;
+                return t;
+            }
+            i = (i + 1) & t.mask;
+        }
+        t.msb[i] = msb;
+        t.lsb[i] = lsb;
+        t.userIds[i] = userId;
+        t.serverIds[i] = serverId;
+        t.size++;
+        return t;
+    }
+
+    // Borrado con desplazamiento hacia atrás: no deja marcas de borrado y las búsquedas siguen terminando en un hueco libre
+    private static Table delete(Table t, long msb, long lsb) {
+        int i = slot(msb, lsb, t.mask);
+        while (t.serverIds[i] != 0) {
+            if (t.msb[i] == msb && t.lsb[i] == lsb) {
+                int hole = i;
+                int j = (i + 1) & t.mask;
+                while (t.serverIds[j] != 0) {
+                    int home = slot(t.msb[j], t.lsb[j], t.mask);
+                    // La entrada j puede ocupar el hueco si su posición natural no está entre el hueco y j
+                    if (((j - home) & t.mask) >= ((j - hole) & t.mask)) {
+                        t.msb[hole] = t.msb[j];
+                        t.lsb[hole] = t.lsb[j];
+                        t.userIds[hole] = t.userIds[j];
+                        t.serverIds[hole] = t.serverIds[j];
+                        hole = j;
+                    }
+                    j = (j + 1) & t.mask;
+                }
+                t.serverIds[hole] = 0;
+                t.size--;
+                return t;
+            }
+            i = (i + 1) & t.mask;
+        }
+        return t;
+    }
+
+    private static Table resize(Table old) {
+        Table t = new Table((old.mask + 1) * 2);
+        for (int i = 0; i <= old.mask; i++) {
+            if (old.serverIds[i] != 0) {
+                insert(t, old.msb[i], old.lsb[i], old.serverIds[i], old.userIds[i]);
+            }
+        }
+        return t;
+    }
+
+    private static int slot(long msb, long lsb, int mask) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    // Solo se aceptan UUID en forma canónica (así se generan las claves); UUID.fromString admite otras variantes
+    private static UUID parse(String streamKey) {
+        if (streamKey == null || streamKey.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(streamKey);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
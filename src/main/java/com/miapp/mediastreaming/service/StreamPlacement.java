@@ -0,0 +1,312 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.MediaServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reparto de streams entre los servidores de un usuario con hashing consistente: cada servidor pone en el anillo
+// un número de nodos virtuales proporcional a su capacidad y un stream va al primer nodo a partir de su hash.
+// Los nodos de un servidor solo dependen de su id, así que al añadir, quitar o cambiar la capacidad de uno
+// solo se mueven los streams de sus tramos. La capacidad es la que anuncia el servidor en sus heartbeats o, si
+// no envía ninguna, la declarada en el alta.
+// Cada anillo es inmutable (hashes ordenados + servidor de cada nodo): las búsquedas son un get del mapa y una
+// búsqueda binaria, sin locks; los cambios crean un anillo nuevo y lo publican con compute().
+@Service
+public class StreamPlacement {
+    private static final Logger logger = LoggerFactory.getLogger(StreamPlacement.class);
+
+    private static final String LOAD_SQL = "select id, name, ip_address, port, coalesce(reported_capacity, capacity) from media_servers where user_id = ?";
+
+    public record Placement(String streamId, long serverId, String serverName, String ipAddress, int port) {}
+
+    private record Target(long serverId, String name, String ipAddress, int port, int vnodes) {}
+
+    private static final class Ring {
+        static final Ring EMPTY = new Ring(new long[0], new Target[0], false);
+
+        final long[] hashes;
+        final Target[] nodes;
+        // Marca de carga en curso: cada carga pone la suya y solo la sustituye si nadie la quitó mientras leía
+        final boolean loading;
+        // Servidor -> su Target, para los cambios de capacidad; se calcula al primer uso
+        private volatile Map<Long, Target> servers;
+
+        Ring(long[] hashes, Target[] nodes, boolean loading) {
+            this.hashes = hashes;
+            this.nodes = nodes;
+            this.loading = loading;
+        }
+
+        Ring(long[] hashes, Target[] nodes) {
+            this(hashes, nodes, false);
+        }
+
+        static Ring loading() {
+            return new Ring(new long[0], new Target[0], true);
+        }
+
+        Target locate(long hash) {
+            if (hashes.length == 0) {
+                return null;
+            }
+            int i = Arrays.binarySearch(hashes, hash);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return nodes[i == hashes.length ? 0 : i];
+        }
+
+        // El anillo es inmutable: si dos hilos calculan el índice a la vez, ambos obtienen el mismo
+        Target find(long serverId) {
+            Map<Long, Target> index = servers;
+            if (index == null) {
+                index = new HashMap<>();
+                for (Target node : nodes) {
+                    index.putIfAbsent(node.serverId(), node);
+                }
+                servers = index;
+            }
+            return index.get(serverId);
+        }
+
+        // Quita los nodos de los servidores indicados (ids ordenados) y mezcla los de added: O(nodos del anillo),
+        // una sola vez por lote aunque cambien muchos servidores
+        Ring replace(long[] removedIds, List<Target> added) {
+            Ring rest = without(removedIds);
+            return added.isEmpty() ? rest : merge(rest, build(added));
+        }
+
+        Ring without(long[] serverIds) {
+            int kept = 0;
+            for (Target node : nodes) {
+                if (Arrays.binarySearch(serverIds, node.serverId()) < 0) {
+                    kept++;
+                }
+            }
+            if (kept == nodes.length) {
+                return this;
+            }
+            long[] keptHashes = new long[kept];
+            Target[] keptNodes = new Target[kept];
+            int k = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                if (Arrays.binarySearch(serverIds, nodes[i].serverId()) < 0) {
+                    keptHashes[k] = hashes[i];
+                    keptNodes[k++] = nodes[i];
+                }
+            }
+            return new Ring(keptHashes, keptNodes);
+        }
+
+        // Los nodos de un servidor salen de su id: los mismos en cada réplica y en cada reconstrucción
+        static Ring of(Target target) {
+            long[] points = new long[target.vnodes()];
+            for (int v = 0; v < points.length; v++) {
+                points[v] = mix(target.serverId() * 0x9E3779B97F4A7C15L + v);
+            }
+            Arrays.sort(points);
+            Target[] nodes = new Target[points.length];
+            Arrays.fill(nodes, target);
+            return new Ring(points, nodes);
+        }
+
+        static Ring merge(Ring a, Ring b) {
+            long[] hashes = new long[a.hashes.length + b.hashes.length];
+            Target[] nodes = new Target[hashes.length];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < hashes.length; k++) {
+                if (j == b.hashes.length || (i < a.hashes.length && a.hashes[i] <= b.hashes[j])) {
+                    hashes[k] = a.hashes[i];
+                    nodes[k] = a.nodes[i++];
+                } else {
+                    hashes[k] = b.hashes[j];
+                    nodes[k] = b.nodes[j++];
+                }
+            }
+            return new Ring(hashes, nodes);
+        }
+
+        // Mezcla por parejas de los tramos ya ordenados de cada servidor: O(nodos · log servidores)
+        static Ring build(List<Target> targets) {
+            List<Ring> runs = new ArrayList<>();
+            for (Target target : targets) {
+                runs.add(of(target));
+            }
+            if (runs.isEmpty()) {
+                return EMPTY;
+            }
+            while (runs.size() > 1) {
+                List<Ring> merged = new ArrayList<>((runs.size() + 1) / 2);
+                for (int i = 0; i < runs.size(); i += 2) {
+                    merged.add(i + 1 < runs.size() ? merge(runs.get(i), runs.get(i + 1)) : runs.get(i));
+                }
+                runs = merged;
+            }
+            return runs.get(0);
+        }
+    }
+
+    // Anillo de cada usuario, o su marca de carga mientras se lee de la BD
+    private final ConcurrentHashMap<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final int vnodes;
+    private final int referenceCapacity;
+    private final int maxVnodes;
+    private final int maxRings;
+    private final double capacityTolerance;
+
+    public StreamPlacement(JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.placement.vnodes:160}") int vnodes,
+                           @Value("${app.placement.reference-capacity:100}") int referenceCapacity,
+                           @Value("${app.placement.max-vnodes:1600}") int maxVnodes,
+                           @Value("${app.placement.max-rings:100000}") int maxRings,
+                           @Value("${app.placement.capacity-tolerance:0.2}") double capacityTolerance) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vnodes = vnodes;
+        this.referenceCapacity = referenceCapacity;
+        this.maxVnodes = maxVnodes;
+        this.maxRings = maxRings;
+        this.capacityTolerance = capacityTolerance;
+        Gauge.builder("placement.rings", rings, Map::size).register(meterRegistry);
+    }
+
+    // Devuelve null si el usuario no tiene servidores
+    public Placement place(Long userId, String streamId) {
+        Ring ring = rings.get(userId);
+        if (ring == null || ring.loading) {
+            ring = load(userId);
+        }
+        Target target = ring.locate(hash(streamId));
+        return target != null
+                ? new Placement(streamId, target.serverId(), target.name(), target.ipAddress(), target.port())
+                : null;
+    }
+
+    // Altas o modificaciones confirmadas; si el anillo del usuario no está en memoria se construirá al pedirlo
+    public void serversChanged(Long userId, List<MediaServer> servers) {
+        if (servers.isEmpty()) {
+            return;
+        }
+        List<Target> targets = new ArrayList<>(servers.size());
+        for (MediaServer server : servers) {
+            targets.add(target(server.getId(), server.getName(), server.getIpAddress(), server.getPort(), server.getCapacity()));
+        }
+        long[] ids = sortedIds(targets.stream().map(Target::serverId).toList());
+        rings.computeIfPresent(userId, (id, ring) -> ring.loading ? null : ring.replace(ids, targets));
+    }
+
+    public void serversRemoved(Long userId, List<Long> serverIds) {
+        if (serverIds.isEmpty()) {
+            return;
+        }
+        long[] ids = sortedIds(serverIds);
+        rings.computeIfPresent(userId, (id, ring) -> ring.loading ? null : ring.replace(ids, List.of()));
+    }
+
+    // Capacidad anunciada en un heartbeat. Solo se rehacen los nodos del servidor si su número cambia más que
+    // capacity-tolerance: las oscilaciones pequeñas no mueven streams. Si el anillo se cargó de la BD antes de que
+    // el flush escribiera la capacidad nueva, o una edición del servidor volvió a la declarada, el siguiente
+    // heartbeat lo corrige
+    public void capacityReported(Long userId, Long serverId, int capacity) {
+        Ring ring = rings.get(userId);
+        int count = vnodes(capacity);
+        if (ring == null || ring.loading || resized(ring, serverId, count) == ring) {
+            return;
+        }
+        rings.computeIfPresent(userId, (id, current) -> current.loading ? current : resized(current, serverId, count));
+    }
+
+    private Ring resized(Ring ring, long serverId, int count) {
+        Target target = ring.find(serverId);
+        if (target == null || Math.abs(count - target.vnodes()) <= target.vnodes() * capacityTolerance) {
+            return ring;
+        }
+        return ring.replace(new long[] {serverId},
+                List.of(new Target(serverId, target.name(), target.ipAddress(), target.port(), count)));
+    }
+
+    // Con varias réplicas, los cambios hechos en otra solo llegan aquí al recargar: se descartan los anillos
+    // periódicamente y se reconstruyen al siguiente uso. También acota la memoria a los usuarios activos
+    @Scheduled(fixedDelayString = "${app.placement.resync-interval:PT10M}", initialDelayString = "${app.placement.resync-interval:PT10M}")
+    public void resync() {
+        int dropped = rings.size();
+        rings.clear();
+        logger.debug("Anillos de reparto descartados: {}", dropped);
+    }
+
+    // Un cambio en los servidores de este usuario (o un resync) mientras se lee quita la marca: el anillo leído puede
+    // estar obsoleto y sirve para esta petición, pero no se guarda. Los cambios de otros usuarios no le afectan
+    private Ring load(Long userId) {
+        Ring marker = Ring.loading();
+        boolean cache = rings.size() < maxRings && rings.putIfAbsent(userId, marker) == null;
+        List<Target> targets = new ArrayList<>();
+        try {
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                targets.add(target(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4),
+                        (Integer) rs.getObject(5)));
+            }, userId);
+        } catch (RuntimeException e) {
+            if (cache) {
+                rings.remove(userId, marker);
+            }
+            throw e;
+        }
+        Ring ring = Ring.build(targets);
+        if (cache) {
+            rings.replace(userId, marker, ring);
+        }
+        return ring;
+    }
+
+    private Target target(long serverId, String name, String ipAddress, int port, Integer capacity) {
+        return new Target(serverId, name, ipAddress, port, vnodes(capacity != null ? capacity : referenceCapacity));
+    }
+
+    private int vnodes(int capacity) {
+        long count = Math.round((double) vnodes * capacity / referenceCapacity);
+        return (int) Math.max(1, Math.min(maxVnodes, count));
+    }
+
+    private static long[] sortedIds(List<Long> serverIds) {
+        long[] ids = new long[serverIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = serverIds.get(i);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // FNV-1a de 64 bits sobre los caracteres y mezcla final de MurmurHash3: sin reservar memoria y bien repartido
+    static long hash(String streamId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < streamId.length(); i++) {
+            h ^= streamId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,216 @@
+package com.miapp.mediastreaming.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Comprueba si una lista de endpoints acepta conexiones TCP usando connect no bloqueante y un único Selector.
+// Todo ocurre en el hilo que llama a probe(): como mucho maxConcurrent conexiones abiertas a la vez,
+// cada una con su propio plazo.
+// Los nombres de host se resuelven antes en un pool pequeño y con el mismo plazo: un DNS lento solo deja
+// inalcanzables sus servidores en ese ciclo, no detiene el sondeo. La caché de InetAddress hace el resto.
+// Las direcciones resueltas que ServerAddressPolicy no permite se dan por inalcanzables sin abrir conexión.
+public class TcpConnectProber implements AutoCloseable {
+
+    public record Target(Long serverId, String host, int port) {}
+
+    private record Pending(Target target, long deadline) {}
+
+    private static final int RESOLVER_THREADS = 4;
+
+    private final ServerAddressPolicy addressPolicy;
+    private final int maxConcurrent;
+    private final long timeoutNanos;
+    private final ExecutorService resolver =
+            Executors.newFixedThreadPool(RESOLVER_THREADS, Thread.ofPlatform().name("probe-dns-", 0).daemon(true).factory());
+    // Una consulta en curso por host: si tarda más que un ciclo, el siguiente la reutiliza en vez de apilar otra
+    private final ConcurrentHashMap<String, CompletableFuture<InetAddress>> lookups = new ConcurrentHashMap<>();
+
+    public TcpConnectProber(ServerAddressPolicy addressPolicy, int maxConcurrent, long timeoutMillis) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("max-concurrent debe ser mayor que cero: " + maxConcurrent);
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("El plazo del sondeo debe ser mayor que cero: " + timeoutMillis);
+        }
+        this.addressPolicy = addressPolicy;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    // Devuelve serverId -> alcanzable
+    public Map<Long, Boolean> probe(List<Target> targets) throws IOException {
+        Map<Long, Boolean> results = new HashMap<>(targets.size() * 2);
+        Map<String, InetAddress> addresses = resolve(targets);
+        try (Selector selector = Selector.open()) {
+            int next = 0;
+            int inFlight = 0;
+            while (next < targets.size() || inFlight > 0) {
+                while (inFlight < maxConcurrent && next < targets.size()) {
+                    Target target = targets.get(next++);
+                    if (start(selector, target, addresses.get(target.host()), results)) {
+                        inFlight++;
+                    }
+                }
+                if (inFlight == 0) {
+                    continue;
+                }
+                long waitMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(earliestDeadline(selector) - System.nanoTime()));
+                selector.select(waitMillis);
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    Pending pending = (Pending) key.attachment();
+                    boolean connected;
+                    try {
+                        connected = ((SocketChannel) key.channel()).finishConnect();
+                    } catch (IOException e) {
+                        connected = false;
+                    }
+                    results.put(pending.target().serverId(), connected);
+                    finish(key);
+                    inFlight--;
+                }
+                inFlight -= expire(selector, results);
+            }
+        }
+        return results;
+    }
+
+    // Devuelve true si la conexión quedó pendiente en el selector
+    private boolean start(Selector selector, Target target, InetAddress host, Map<Long, Boolean> results) {
+        SocketChannel channel = null;
+        try {
+            if (host == null || !addressPolicy.allows(host)) {
+                results.put(target.serverId(), false);
+                return false;
+            }
+            InetSocketAddress address = new InetSocketAddress(host, target.port());
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                results.put(target.serverId(), true);
+                channel.close();
+                return false;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT, new Pending(target, System.nanoTime() + timeoutNanos));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Dirección inválida, puerto fuera de rango, conexión rechazada de inmediato...
+            results.put(target.serverId(), false);
+            closeQuietly(channel);
+            return false;
+        }
+    }
+
+    // host -> dirección; los que no resuelven (o no a tiempo) no aparecen
+    private Map<String, InetAddress> resolve(List<Target> targets) {
+        Map<String, InetAddress> addresses = new HashMap<>();
+        Map<String, CompletableFuture<InetAddress>> waiting = new HashMap<>();
+        for (Target target : targets) {
+            String host = target.host();
+            if (host == null || addresses.containsKey(host) || waiting.containsKey(host)) {
+                continue;
+            }
+            if (ServerAddressPolicy.isLiteral(host)) {
+                try {
+                    addresses.put(host, InetAddress.getByName(host));
+                } catch (UnknownHostException e) {
+                    // Literal mal formado: inalcanzable
+                }
+                continue;
+            }
+            waiting.put(host, lookups.compute(host, (h, running) -> running != null && !running.isDone() ? running : lookup(h)));
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (Map.Entry<String, CompletableFuture<InetAddress>> entry : waiting.entrySet()) {
+            try {
+                InetAddress address = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (address != null) {
+                    addresses.put(entry.getKey(), address);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // Sin respuesta dentro del plazo: la consulta sigue y el próximo ciclo encontrará la caché caliente
+            }
+        }
+        lookups.values().removeIf(CompletableFuture::isDone);
+        return addresses;
+    }
+
+    private CompletableFuture<InetAddress> lookup(String host) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return InetAddress.getByName(host);
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }, resolver);
+    }
+
+    private int expire(Selector selector, Map<Long, Boolean> results) {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid()) {
+                continue;
+            }
+            Pending pending = (Pending) key.attachment();
+            if (now - pending.deadline() >= 0) {
+                results.put(pending.target().serverId(), false);
+                finish(key);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private long earliestDeadline(Selector selector) {
+        long earliest = System.nanoTime() + timeoutNanos;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                long deadline = ((Pending) key.attachment()).deadline();
+                if (deadline - earliest < 0) {
+                    earliest = deadline;
+                }
+            }
+        }
+        return earliest;
+    }
+
+    @Override
+    public void close() {
+        resolver.shutdownNow();
+    }
+
+    private static void finish(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(java.nio.channels.Channel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nada que hacer: el resultado ya está registrado
+            }
+        }
+    }
+}
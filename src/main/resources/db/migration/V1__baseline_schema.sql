@@ -0,0 +1,72 @@
+-- Esquema inicial. Todo es idempotente para poder aplicarlo también sobre bases creadas antes con
+-- ddl-auto=update (spring.flyway.baseline-on-migrate con baseline-version=0 hace que V1 se ejecute igualmente).
+
+create sequence if not exists users_seq start with 1 increment by 50;
+create sequence if not exists media_servers_seq start with 1 increment by 50;
+
+create table if not exists users (
+    id bigint not null primary key,
+    username varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255),
+    token varchar(255),
+    server_set_version bigint not null default 0
+);
+
+-- Columnas añadidas después de crear la tabla con ddl-auto
+alter table users add column if not exists token varchar(255);
+alter table users add column if not exists server_set_version bigint;
+update users set server_set_version = 0 where server_set_version is null;
+alter table users alter column server_set_version set default 0;
+alter table users alter column server_set_version set not null;
+
+create table if not exists media_servers (
+    id bigint not null primary key,
+    name varchar(255) not null,
+    ip_address varchar(255) not null,
+    port integer not null,
+    stream_key varchar(255),
+    status varchar(255),
+    last_seen timestamp(6) with time zone,
+    current_viewers integer,
+    bitrate_kbps bigint,
+    user_id bigint references users (id)
+);
+
+alter table media_servers add column if not exists status varchar(255);
+alter table media_servers add column if not exists last_seen timestamp(6) with time zone;
+alter table media_servers add column if not exists current_viewers integer;
+alter table media_servers add column if not exists bitrate_kbps bigint;
+
+-- Las bases anteriores a los secuenciales usaban IDENTITY: las secuencias tienen que empezar por encima de max(id)
+select setval('users_seq', greatest((select coalesce(max(id), 0) from users) + 50, (select last_value from users_seq)));
+select setval('media_servers_seq', greatest((select coalesce(max(id), 0) from media_servers) + 50, (select last_value from media_servers_seq)));
+
+-- Si ya hay duplicados los índices únicos fallan y la migración se detiene: hay que resolverlos a mano antes de desplegar
+
+-- findByEmail (natural id) en login y registro
+create unique index if not exists users_email_uk on users (email);
+-- ddl-auto creó su propia restricción única (uk_...) para el natural id; sobra con users_email_uk
+do $$
+declare
+    c record;
+begin
+    for c in select con.conname from pg_constraint con
+             join pg_attribute att on att.attrelid = con.conrelid and att.attnum = con.conkey[1]
+             where con.conrelid = 'users'::regclass and con.contype = 'u'
+               and array_length(con.conkey, 1) = 1 and att.attname = 'email'
+    loop
+        execute format('alter table users drop constraint %I', c.conname);
+    end loop;
+end $$;
+-- findByUsername en login y registro
+create unique index if not exists users_username_uk on users (username);
+-- findByToken en cada fallo de la caché de tokens; los usuarios sin sesión no ocupan el índice
+create unique index if not exists users_token_uk on users (token) where token is not null;
+
+-- Listado por keyset (user_id = ? and id > ? order by id), findByIdAndUserId, findByUserIdAndIdIn y la FK
+create index if not exists media_servers_user_id_id_idx on media_servers (user_id, id);
+-- on_publish resuelve el servidor por su clave de stream
+create unique index if not exists media_servers_stream_key_uk on media_servers (stream_key);
+-- Expiración de heartbeats: solo recorre los servidores ONLINE
+create index if not exists media_servers_online_last_seen_idx on media_servers (last_seen) where status = 'ONLINE';
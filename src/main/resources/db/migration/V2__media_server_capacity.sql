@@ -0,0 +1,3 @@
+-- Capacidad declarada por el servidor (p. ej. streams simultáneos): es el peso en el reparto de StreamPlacement.
+-- Nula equivale a app.placement.reference-capacity
+alter table media_servers add column capacity integer;
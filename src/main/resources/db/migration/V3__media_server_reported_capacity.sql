@@ -0,0 +1,3 @@
+-- Capacidad que anuncia el propio servidor en sus heartbeats (la escribe ServerStatusRegistry en cada flush).
+-- Si existe, manda sobre la declarada en el alta para el reparto de StreamPlacement
+alter table media_servers add column reported_capacity integer;
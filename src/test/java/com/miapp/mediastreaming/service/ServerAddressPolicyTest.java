@@ -0,0 +1,66 @@
+package com.miapp.mediastreaming.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ServerAddressPolicyTest {
+
+    private final ServerAddressPolicy policy = new ServerAddressPolicy(true,
+            List.of("loopback", "link-local", "site-local", "any-local", "multicast"),
+            List.of("0.0.0.0/8", "100.64.0.0/10", "fc00::/7"));
+
+    @Test
+    void internalAddressesAreDenied() throws Exception {
+        for (String address : List.of("127.0.0.1", "127.8.9.10", "::1", "169.254.169.254", "fe80::1",
+                "10.0.0.5", "172.16.3.4", "192.168.1.1", "0.0.0.0", "::", "224.0.0.1", "ff02::1",
+                "100.64.0.1", "fd00::1", "::ffff:127.0.0.1")) {
+            assertThat(policy.allows(InetAddress.getByName(address))).as(address).isFalse();
+        }
+    }
+
+    @Test
+    void publicAddressesAreAllowed() throws Exception {
+        for (String address : List.of("8.8.8.8", "100.128.0.1", "172.32.0.1", "2001:4860:4860::8888")) {
+            assertThat(policy.allows(InetAddress.getByName(address))).as(address).isTrue();
+        }
+    }
+
+    @Test
+    void registrationRejectsInternalLiteralsAndLocalhost() {
+        assertThat(policy.rejectReason("169.254.169.254")).isNotNull();
+        assertThat(policy.rejectReason(" 10.1.2.3 ")).isNotNull();
+        assertThat(policy.rejectReason("[::1]")).isNotNull();
+        // Forma decimal de 127.0.0.1
+        assertThat(policy.rejectReason("2130706433")).isNotNull();
+        assertThat(policy.rejectReason("LOCALHOST")).isNotNull();
+        assertThat(policy.rejectReason("db.localhost")).isNotNull();
+        assertThat(policy.rejectReason("300.1.1.1")).isNotNull();
+
+        assertThat(policy.rejectReason("203.0.113.7")).isNull();
+        // Los nombres se comprueban al sondear, tras resolverlos
+        assertThat(policy.rejectReason("media.example.com")).isNull();
+    }
+
+    @Test
+    void disabledPolicyAllowsEverything() throws Exception {
+        ServerAddressPolicy disabled = ServerAddressPolicy.allowAll();
+
+        assertThat(disabled.allows(InetAddress.getByName("127.0.0.1"))).isTrue();
+        assertThat(disabled.rejectReason("localhost")).isNull();
+    }
+
+    @Test
+    void malformedRangeIsRejectedAtStartup() {
+        assertThatThrownBy(() -> new ServerAddressPolicy(true, List.of(), List.of("10.0.0.0/33")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ServerAddressPolicy(true, List.of(), List.of("example.com/8")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ServerAddressPolicy(true, List.of("intranet"), List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
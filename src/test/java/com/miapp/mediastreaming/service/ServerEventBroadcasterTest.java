@@ -0,0 +1,78 @@
+package com.miapp.mediastreaming.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerEventBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final CountDownLatch delivered = new CountDownLatch(1);
+    private ServerEventBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (broadcaster != null) {
+            broadcaster.destroy();
+        }
+    }
+
+    @Test
+    void stalledSendDoesNotHoldUpOtherSubscribers() throws Exception {
+        // Un solo hilo de envío: sin el plazo de escritura, el cliente atascado lo retendría y el otro no recibiría nada
+        broadcaster = new ServerEventBroadcaster(meterRegistry, Duration.ZERO, 1000, 256, Duration.ofMinutes(30),
+                Duration.ofMinutes(10), Duration.ofMinutes(5), 1, Duration.ofMillis(200), 64) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return emitters.removeFirst();
+            }
+        };
+        emitters.add(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void complete() {
+                completed.countDown();
+            }
+        });
+        emitters.add(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                delivered.countDown();
+            }
+        });
+        broadcaster.subscribe(1L, null);
+        broadcaster.subscribe(2L, null);
+
+        broadcaster.publishDeleted(1L, 100L);
+        broadcaster.publishDeleted(2L, 200L);
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.counter("servers.events.stalled.sends").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("servers.events.dropped.subscribers").count()).isEqualTo(1.0);
+
+        // Cuando la escritura por fin vuelve, el suscriptor ya retirado se cierra
+        release.countDown();
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
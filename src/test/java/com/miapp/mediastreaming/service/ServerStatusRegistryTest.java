@@ -0,0 +1,213 @@
+package com.miapp.mediastreaming.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ServerStatusRegistryTest {
+
+    private static final long SERVER_ID = 1L;
+    private static final long USER_ID = 10L;
+
+    private final List<List<Object[]>> writes = new ArrayList<>();
+    private final List<Object> bumpedOwners = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private ServerEventBroadcaster broadcaster;
+    private StreamKeyIndex streamKeyIndex;
+    private StreamPlacement placement;
+    private ServerStatusRegistry registry;
+    private boolean failWrites;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            if (failWrites) {
+                throw new DataAccessResourceFailureException("BD caída");
+            }
+            writes.add(new ArrayList<>((List<Object[]>) invocation.getArgument(1)));
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("update media_servers")), anyList());
+        doAnswer(invocation -> {
+            ((List<Object[]>) invocation.getArgument(1)).forEach(row -> bumpedOwners.add(row[0]));
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("update users")), anyList());
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(mock(Cache.class));
+        broadcaster = mock(ServerEventBroadcaster.class);
+        streamKeyIndex = mock(StreamKeyIndex.class);
+        placement = mock(StreamPlacement.class);
+        registry = new ServerStatusRegistry(streamKeyIndex, broadcaster, placement, jdbcTemplate, transactionTemplate,
+                entityManagerFactory, new SimpleMeterRegistry(), Duration.ofSeconds(30), 500);
+    }
+
+    @Test
+    void unreachableServerIsWrittenAndPublishedOnceThenStaysQuiet() {
+        registry.recordProbe(SERVER_ID, USER_ID, false);
+        registry.flush();
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0).get(0)[0]).isEqualTo(ServerStatusRegistry.OFFLINE);
+
+        for (int cycle = 0; cycle < 3; cycle++) {
+            registry.recordProbe(SERVER_ID, USER_ID, false);
+            registry.flush();
+        }
+
+        assertThat(writes).hasSize(1);
+        assertThat(registry.get(SERVER_ID).status()).isEqualTo(ServerStatusRegistry.OFFLINE);
+        verify(broadcaster, times(1)).publishStatus(eq(USER_ID), any());
+    }
+
+    @Test
+    void reachableServerRefreshesLastSeenButPublishesOnlyTheChange() {
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        registry.flush();
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        registry.flush();
+
+        assertThat(writes).hasSize(2);
+        assertThat(writes).allSatisfy(batch -> assertThat(batch.get(0)[0]).isEqualTo(ServerStatusRegistry.ONLINE));
+        verify(broadcaster, times(1)).publishStatus(eq(USER_ID), any());
+    }
+
+    @Test
+    void statusChangesAreWrittenAndPublishedEachTime() {
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        registry.flush();
+        registry.recordProbe(SERVER_ID, USER_ID, false);
+        registry.flush();
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        registry.flush();
+
+        assertThat(writes).extracting(batch -> batch.get(0)[0])
+                .containsExactly(ServerStatusRegistry.ONLINE, ServerStatusRegistry.OFFLINE, ServerStatusRegistry.ONLINE);
+        verify(broadcaster, times(3)).publishStatus(eq(USER_ID), any());
+    }
+
+    @Test
+    void failedFlushKeepsOfflineStateForTheRetry() {
+        registry.recordProbe(SERVER_ID, USER_ID, false);
+        failWrites = true;
+        registry.flush();
+        assertThat(writes).isEmpty();
+
+        // El siguiente sondeo no cambia nada, pero el estado sigue pendiente de escribir
+        registry.recordProbe(SERVER_ID, USER_ID, false);
+        failWrites = false;
+        registry.flush();
+
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0).get(0)[0]).isEqualTo(ServerStatusRegistry.OFFLINE);
+        assertThat(writes.get(0).get(0)[5]).isEqualTo(SERVER_ID);
+    }
+
+    @Test
+    void heartbeatsBetweenFlushesBecomeOneWrite() {
+        when(streamKeyIndex.lookup("key")).thenReturn(new StreamKeyIndex.Owner(SERVER_ID, USER_ID));
+
+        assertThat(registry.heartbeat("key", null, 5, 2500L, null)).isTrue();
+        assertThat(registry.heartbeat("key", null, 5, 2500L, null)).isTrue();
+        assertThat(registry.heartbeat("key", null, 6, 2500L, null)).isTrue();
+        registry.flush();
+
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0)).hasSize(1);
+        assertThat(writes.get(0).get(0)[2]).isEqualTo(6);
+        verify(broadcaster, times(2)).publishStatus(eq(USER_ID), any());
+    }
+
+    @Test
+    void reportedCapacityIsKeptWrittenAndPassedToPlacement() {
+        when(streamKeyIndex.lookup("key")).thenReturn(new StreamKeyIndex.Owner(SERVER_ID, USER_ID));
+
+        registry.heartbeat("key", null, 5, 2500L, 300);
+        registry.heartbeat("key", null, 5, 2500L, null);
+        registry.recordProbe(SERVER_ID, USER_ID, false);
+        registry.flush();
+
+        assertThat(registry.get(SERVER_ID).capacity()).isEqualTo(300);
+        assertThat(writes.get(0).get(0)[4]).isEqualTo(300);
+        verify(placement, times(1)).capacityReported(USER_ID, SERVER_ID, 300);
+    }
+
+    @Test
+    void listingVersionChangesOnlyWhenTheStatusChanges() {
+        when(streamKeyIndex.lookup("key")).thenReturn(new StreamKeyIndex.Owner(SERVER_ID, USER_ID));
+
+        registry.heartbeat("key", null, 5, 2500L, null);
+        registry.flush();
+        registry.heartbeat("key", null, 7, 3000L, null);
+        registry.flush();
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        registry.flush();
+        assertThat(writes).hasSize(3);
+        assertThat(bumpedOwners).containsExactly(USER_ID);
+
+        registry.heartbeat("key", "OFFLINE", 0, 0L, null);
+        registry.flush();
+        assertThat(bumpedOwners).containsExactly(USER_ID, USER_ID);
+    }
+
+    @Test
+    void failedFlushKeepsTheVersionChangeForTheRetry() {
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        failWrites = true;
+        registry.flush();
+        assertThat(bumpedOwners).isEmpty();
+
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        failWrites = false;
+        registry.flush();
+
+        assertThat(writes).hasSize(1);
+        assertThat(bumpedOwners).containsExactly(USER_ID);
+    }
+
+    @Test
+    void unknownStreamKeyIsRejected() {
+        assertThat(registry.heartbeat("unknown", null, 1, 1L, null)).isFalse();
+        registry.flush();
+
+        assertThat(writes).isEmpty();
+        verify(broadcaster, never()).publishStatus(any(), any());
+    }
+
+    @Test
+    void forgottenServerIsNotWritten() {
+        registry.recordProbe(SERVER_ID, USER_ID, true);
+        registry.forget(SERVER_ID);
+        registry.flush();
+
+        assertThat(writes).isEmpty();
+        assertThat(registry.get(SERVER_ID)).isNull();
+    }
+}
@@ -0,0 +1,125 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.StreamKeyOwner;
+import com.miapp.mediastreaming.repository.MediaServerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamKeyIndexTest {
+
+    private MediaServerRepository repository;
+    private StreamKeyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(MediaServerRepository.class);
+        index = new StreamKeyIndex(mock(JdbcTemplate.class), repository, new SimpleMeterRegistry(), true,
+                Duration.ofSeconds(10));
+    }
+
+    @Test
+    void putLookupAndRemoveWithoutTheDatabase() {
+        String key = UUID.randomUUID().toString();
+        index.put(key, 5L, 50L);
+
+        assertThat(index.lookup(key)).isEqualTo(new StreamKeyIndex.Owner(5L, 50L));
+
+        index.remove(key);
+        assertThat(index.lookup(key)).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void keyLoadedFromTheDatabaseIsCached() {
+        String key = UUID.randomUUID().toString();
+        when(repository.findOwnerByStreamKey(key)).thenReturn(owner(7L, 70L));
+
+        assertThat(index.lookup(key)).isEqualTo(new StreamKeyIndex.Owner(7L, 70L));
+        assertThat(index.lookup(key)).isEqualTo(new StreamKeyIndex.Owner(7L, 70L));
+
+        verify(repository, times(1)).findOwnerByStreamKey(key);
+    }
+
+    @Test
+    void unknownKeyQueriesTheDatabaseOncePerTtl() {
+        String key = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(index.lookup(key)).isNull();
+        }
+
+        verify(repository, times(1)).findOwnerByStreamKey(key);
+    }
+
+    @Test
+    void keyPutAfterAMissIsFoundAtOnce() {
+        String key = UUID.randomUUID().toString();
+        assertThat(index.lookup(key)).isNull();
+
+        index.put(key, 3L, 30L);
+
+        assertThat(index.lookup(key)).isEqualTo(new StreamKeyIndex.Owner(3L, 30L));
+    }
+
+    @Test
+    void keyDeletedWhileItIsBeingLoadedIsNotCached() throws Exception {
+        String key = UUID.randomUUID().toString();
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch deleted = new CountDownLatch(1);
+        when(repository.findOwnerByStreamKey(key)).thenAnswer(invocation -> {
+            querying.countDown();
+            assertThat(deleted.await(5, TimeUnit.SECONDS)).isTrue();
+            // La fila se leyó antes de confirmarse el borrado
+            return owner(9L, 90L);
+        }).thenReturn(null);
+
+        CompletableFuture<StreamKeyIndex.Owner> lookup = CompletableFuture.supplyAsync(() -> index.lookup(key));
+        assertThat(querying.await(5, TimeUnit.SECONDS)).isTrue();
+        index.remove(key);
+        deleted.countDown();
+
+        assertThat(lookup.get(5, TimeUnit.SECONDS)).isEqualTo(new StreamKeyIndex.Owner(9L, 90L));
+        assertThat(index.size()).isZero();
+        assertThat(index.lookup(key)).isNull();
+        verify(repository, times(2)).findOwnerByStreamKey(key);
+    }
+
+    @Test
+    void malformedKeysAreRejectedWithoutQuerying() {
+        assertThat(index.lookup(null)).isNull();
+        assertThat(index.lookup("not-a-uuid")).isNull();
+        assertThat(index.lookup("1-2-3-4-5")).isNull();
+
+        verify(repository, never()).findOwnerByStreamKey(anyString());
+    }
+
+    private static StreamKeyOwner owner(long serverId, long userId) {
+        return new StreamKeyOwner() {
+            @Override
+            public Long getServerId() {
+                return serverId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+}
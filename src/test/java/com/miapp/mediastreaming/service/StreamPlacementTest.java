@@ -0,0 +1,231 @@
+package com.miapp.mediastreaming.service;
+
+import com.miapp.mediastreaming.model.MediaServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamPlacementTest {
+
+    private static final long USER_ID = 10L;
+    private static final long OTHER_USER_ID = 20L;
+    private static final int STREAMS = 10_000;
+
+    private final Map<Long, List<MediaServer>> database = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> loads = new ConcurrentHashMap<>();
+    private final Map<Long, CountDownLatch> blockedLoads = new ConcurrentHashMap<>();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private JdbcTemplate jdbcTemplate;
+    private StreamPlacement placement;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Long userId = invocation.getArgument(2);
+            loads.computeIfAbsent(userId, id -> new AtomicInteger()).incrementAndGet();
+            // Las filas se leen antes de esperar: simula una lectura que termina después de un cambio confirmado
+            List<MediaServer> rows = List.copyOf(database.getOrDefault(userId, List.of()));
+            CountDownLatch blocked = blockedLoads.remove(userId);
+            if (blocked != null) {
+                loading.countDown();
+                assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+            for (MediaServer server : rows) {
+                handler.processRow(row(server));
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any());
+        placement = newPlacement();
+    }
+
+    @Test
+    void sameStreamLandsOnTheSameServerAcrossRebuilds() {
+        for (long id = 1; id <= 5; id++) {
+            addServer(USER_ID, id, null);
+        }
+        Map<String, Long> before = placeAll(placement);
+
+        placement.resync();
+        assertThat(placeAll(placement)).isEqualTo(before);
+
+        // Otra réplica que lee los servidores en otro orden reparte igual
+        database.put(USER_ID, new ArrayList<>(database.get(USER_ID)).reversed());
+        assertThat(placeAll(newPlacement())).isEqualTo(before);
+    }
+
+    @Test
+    void addingAServerMovesAboutItsShareAndOnlyToIt() {
+        for (long id = 1; id <= 4; id++) {
+            addServer(USER_ID, id, null);
+        }
+        Map<String, Long> before = placeAll(placement);
+
+        MediaServer added = addServer(USER_ID, 5L, null);
+        placement.serversChanged(USER_ID, List.of(added));
+        Map<String, Long> after = placeAll(placement);
+
+        int moved = 0;
+        for (Map.Entry<String, Long> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                assertThat(entry.getValue()).isEqualTo(5L);
+                moved++;
+            }
+        }
+        // Con 5 servidores iguales le corresponde 1/5 de los streams
+        assertThat((double) moved / STREAMS).isBetween(0.14, 0.26);
+        assertThat(after).isEqualTo(placeAll(newPlacement()));
+    }
+
+    @Test
+    void removingAServerMovesOnlyItsStreams() {
+        for (long id = 1; id <= 5; id++) {
+            addServer(USER_ID, id, null);
+        }
+        Map<String, Long> before = placeAll(placement);
+
+        database.get(USER_ID).removeIf(server -> server.getId() == 3L);
+        placement.serversRemoved(USER_ID, List.of(3L));
+        Map<String, Long> after = placeAll(placement);
+
+        long owned = before.values().stream().filter(id -> id == 3L).count();
+        assertThat((double) owned / STREAMS).isBetween(0.14, 0.26);
+        for (Map.Entry<String, Long> entry : before.entrySet()) {
+            if (entry.getValue() == 3L) {
+                assertThat(after.get(entry.getKey())).isNotEqualTo(3L);
+            } else {
+                assertThat(after.get(entry.getKey())).isEqualTo(entry.getValue());
+            }
+        }
+    }
+
+    @Test
+    void capacityWeightsTheShare() {
+        addServer(USER_ID, 1L, 100);
+        addServer(USER_ID, 2L, 300);
+
+        long onBig = placeAll(placement).values().stream().filter(id -> id == 2L).count();
+
+        assertThat((double) onBig / STREAMS).isBetween(0.68, 0.82);
+    }
+
+    @Test
+    void reportedCapacityRebuildsOnlyOnAMaterialChange() {
+        addServer(USER_ID, 1L, 100);
+        addServer(USER_ID, 2L, 100);
+        Map<String, Long> before = placeAll(placement);
+
+        // Dentro de la tolerancia no se mueve nada
+        placement.capacityReported(USER_ID, 2L, 110);
+        assertThat(placeAll(placement)).isEqualTo(before);
+
+        placement.capacityReported(USER_ID, 2L, 300);
+        Map<String, Long> after = placeAll(placement);
+        for (Map.Entry<String, Long> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                assertThat(entry.getValue()).isEqualTo(2L);
+            }
+        }
+        long onBig = after.values().stream().filter(id -> id == 2L).count();
+        assertThat((double) onBig / STREAMS).isBetween(0.68, 0.82);
+
+        // Una réplica que lee la capacidad anunciada de la BD reparte igual
+        database.get(USER_ID).get(1).setCapacity(300);
+        assertThat(after).isEqualTo(placeAll(newPlacement()));
+    }
+
+    @Test
+    void userWithoutServersGetsNoPlacement() {
+        assertThat(placement.place(USER_ID, "stream")).isNull();
+    }
+
+    @Test
+    void changeForAnotherUserDoesNotDiscardTheRingBeingLoaded() throws Exception {
+        addServer(USER_ID, 1L, null);
+        CountDownLatch release = new CountDownLatch(1);
+        blockedLoads.put(USER_ID, release);
+
+        CompletableFuture<StreamPlacement.Placement> first =
+                CompletableFuture.supplyAsync(() -> placement.place(USER_ID, "stream"));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        placement.serversChanged(OTHER_USER_ID, List.of(addServer(OTHER_USER_ID, 2L, null)));
+        placement.serversRemoved(OTHER_USER_ID, List.of(2L));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).serverId()).isEqualTo(1L);
+        placement.place(USER_ID, "stream");
+        assertThat(loads.get(USER_ID)).hasValue(1);
+    }
+
+    @Test
+    void changeForTheSameUserDuringTheLoadIsNotLost() throws Exception {
+        addServer(USER_ID, 1L, null);
+        CountDownLatch release = new CountDownLatch(1);
+        blockedLoads.put(USER_ID, release);
+
+        CompletableFuture<StreamPlacement.Placement> first =
+                CompletableFuture.supplyAsync(() -> placement.place(USER_ID, "stream"));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        database.get(USER_ID).clear();
+        placement.serversRemoved(USER_ID, List.of(1L));
+        release.countDown();
+
+        // La petición en curso usa lo que leyó, pero ese anillo no se guarda
+        assertThat(first.get(5, TimeUnit.SECONDS).serverId()).isEqualTo(1L);
+        assertThat(placement.place(USER_ID, "stream")).isNull();
+        assertThat(loads.get(USER_ID)).hasValue(2);
+    }
+
+    private StreamPlacement newPlacement() {
+        return new StreamPlacement(jdbcTemplate, new SimpleMeterRegistry(), 160, 100, 1600, 1000, 0.2);
+    }
+
+    private Map<String, Long> placeAll(StreamPlacement target) {
+        Map<String, Long> placements = new HashMap<>();
+        for (int i = 0; i < STREAMS; i++) {
+            String streamId = "stream-" + i;
+            placements.put(streamId, target.place(USER_ID, streamId).serverId());
+        }
+        return placements;
+    }
+
+    private MediaServer addServer(long userId, long id, Integer capacity) {
+        MediaServer server = new MediaServer("server" + id, "10.0.0." + id);
+        server.setId(id);
+        server.setPort(1935);
+        server.setCapacity(capacity);
+        database.computeIfAbsent(userId, key -> new ArrayList<>()).add(server);
+        return server;
+    }
+
+    private static ResultSet row(MediaServer server) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(server.getId());
+        when(rs.getString(2)).thenReturn(server.getName());
+        when(rs.getString(3)).thenReturn(server.getIpAddress());
+        when(rs.getInt(4)).thenReturn(server.getPort());
+        when(rs.getObject(5)).thenReturn(server.getCapacity());
+        return rs;
+    }
+}
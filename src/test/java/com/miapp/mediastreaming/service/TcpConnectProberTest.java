@@ -0,0 +1,80 @@
+package com.miapp.mediastreaming.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TcpConnectProberTest {
+
+    private TcpConnectProber prober;
+
+    @AfterEach
+    void tearDown() {
+        if (prober != null) {
+            prober.close();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveLimits() {
+        assertThatThrownBy(() -> new TcpConnectProber(ServerAddressPolicy.allowAll(), 0, 1000)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TcpConnectProber(ServerAddressPolicy.allowAll(), -1, 1000)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TcpConnectProber(ServerAddressPolicy.allowAll(), 8, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reportsListeningAndClosedPorts() throws Exception {
+        int closedPort;
+        try (ServerSocket closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            closedPort = closed.getLocalPort();
+        }
+        try (ServerSocket open = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            prober = new TcpConnectProber(ServerAddressPolicy.allowAll(), 1, 2000);
+
+            Map<Long, Boolean> results = prober.probe(List.of(
+                    new TcpConnectProber.Target(1L, "127.0.0.1", open.getLocalPort()),
+                    new TcpConnectProber.Target(2L, "127.0.0.1", closedPort),
+                    new TcpConnectProber.Target(3L, "127.0.0.1", 70000),
+                    new TcpConnectProber.Target(4L, "localhost", open.getLocalPort())));
+
+            assertThat(results).containsEntry(1L, true)
+                    .containsEntry(2L, false)
+                    .containsEntry(3L, false)
+                    .containsEntry(4L, true);
+        }
+    }
+
+    @Test
+    void deniedAddressesAreUnreachableWithoutConnecting() throws Exception {
+        try (ServerSocket open = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            prober = new TcpConnectProber(new ServerAddressPolicy(true, List.of("loopback"), List.of()), 4, 2000);
+
+            Map<Long, Boolean> results = prober.probe(List.of(
+                    new TcpConnectProber.Target(1L, "127.0.0.1", open.getLocalPort()),
+                    new TcpConnectProber.Target(2L, "localhost", open.getLocalPort())));
+
+            assertThat(results).containsEntry(1L, false).containsEntry(2L, false);
+        }
+    }
+
+    @Test
+    void unresolvableHostIsUnreachableWithinTheTimeout() throws Exception {
+        prober = new TcpConnectProber(ServerAddressPolicy.allowAll(), 4, 500);
+
+        long start = System.nanoTime();
+        Map<Long, Boolean> results = prober.probe(List.of(
+                new TcpConnectProber.Target(1L, "no-such-host.invalid", 1935),
+                new TcpConnectProber.Target(2L, null, 1935),
+                new TcpConnectProber.Target(3L, "300.1.1.1", 1935)));
+
+        assertThat(results).containsEntry(1L, false).containsEntry(2L, false).containsEntry(3L, false);
+        assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+    }
+}